@@ -0,0 +1,54 @@
+package com.ecommerce.backend.cache;
+
+import com.ecommerce.backend.dto.ProductFilter;
+import com.ecommerce.backend.dto.ProductPage;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of the paginated catalog queries
+ * (the full lists are served from CatalogSnapshotService).
+ * Entries are dropped after the write transaction commits, so a reader
+ * can never put the pre-commit state back into the cache.
+ */
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    public record ProductPageKey(String cursor, int limit, ProductFilter filter) {
+    }
+
+    private final BoundedTtlCache<ProductPageKey, ProductPage> productPages;
+
+    public CatalogCache(@Value("${app.catalog.cache.max-pages:1000}") int maxPages,
+                        @Value("${app.catalog.cache.ttl:PT10M}") Duration ttl) {
+        this.productPages = new BoundedTtlCache<>("productPages", maxPages, ttl);
+    }
+
+    public ProductPage getProductPage(ProductPageKey key, Supplier<ProductPage> loader) {
+        return productPages.get(key, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Category changes don't touch product pages (Product.category is a plain string)
+        if (event.type() == CatalogChangedEvent.Type.PRODUCT) {
+            // Any page may contain the product (or shift because of it)
+            productPages.invalidateAll();
+            logger.debug("Catalog cache invalidated for product #{}", event.id());
+        }
+    }
+
+    public List<CacheStats> stats() {
+        return List.of(productPages.stats());
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One bounded executor per kind of background work, instead of the shared default @Async pool:
+ * use @Async(AsyncConfig.IMAGE_EXECUTOR) / @Async(AsyncConfig.MAIL_EXECUTOR).
+ * Stats: /api/metrics/executors. These don't change in virtual-thread mode (VirtualThreadConfig).
+ */
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    public static final String IMAGE_EXECUTOR = "imageExecutor";
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+    public static final String IMAGE_RENDITION_POOL = "imageRenditionPool";
+    public static final String UPLOAD_EXECUTOR = "uploadExecutor";
+
+    @Value("${app.executors.image.threads:0}")
+    private int imageThreads;
+
+    @Value("${app.executors.image.queue-capacity:100}")
+    private int imageQueueCapacity;
+
+    @Value("${app.executors.mail.max-concurrent:4}")
+    private int mailMaxConcurrent;
+
+    @Value("${app.executors.mail.queue-capacity:500}")
+    private int mailQueueCapacity;
+
+    @Value("${app.executors.upload.max-concurrent:8}")
+    private int uploadMaxConcurrent;
+
+    @Value("${app.executors.upload.queue-capacity:100}")
+    private int uploadQueueCapacity;
+
+    // CPU-bound (decode/resize/encode): one platform thread per core, more would only time-slice
+    @Bean(name = IMAGE_EXECUTOR, destroyMethod = "close")
+    public InstrumentedExecutor imageExecutor() {
+        int threads = imageThreads > 0 ? imageThreads : Runtime.getRuntime().availableProcessors();
+        return InstrumentedExecutor.platform(IMAGE_EXECUTOR, threads, imageQueueCapacity);
+    }
+
+    // I/O-bound (SMTP round trips): virtual threads, concurrency capped to what the relay accepts
+    @Bean(name = MAIL_EXECUTOR, destroyMethod = "close")
+    public InstrumentedExecutor mailExecutor() {
+        return InstrumentedExecutor.virtual(MAIL_EXECUTOR, mailMaxConcurrent, mailQueueCapacity);
+    }
+
+    // I/O-bound (Cloudinary uploads of a batch, in parallel): virtual threads, capped per instance
+    @Bean(name = UPLOAD_EXECUTOR, destroyMethod = "close")
+    public InstrumentedExecutor uploadExecutor() {
+        return InstrumentedExecutor.virtual(UPLOAD_EXECUTOR, uploadMaxConcurrent, uploadQueueCapacity);
+    }
+
+    // Fan-out of one image job into its renditions (ImageProcessingService); the job thread waits
+    @Bean(name = IMAGE_RENDITION_POOL, destroyMethod = "close")
+    public ForkJoinPool imageRenditionPool() {
+        int parallelism = imageThreads > 0 ? imageThreads : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    // @Async without a name: never fall back to an unbounded executor
+    @Override
+    public Executor getAsyncExecutor() {
+        return mailExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> logger.error("@Async {}.{} failed",
+                method.getDeclaringClass().getSimpleName(), method.getName(), e);
+    }
+}
@@ -0,0 +1,149 @@
+package com.ecommerce.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Widths every image is offered in (app.images.rendition-widths) and the URL of each rendition,
+ * as a srcset-style map width -> URL:
+ * <ul>
+ * <li>local uploads: files generated next to the original, "name_w320.jpg" (ImageProcessingService).
+ * Only widths whose file exists are listed: legacy uploads and files whose job failed or hasn't run have
+ * none, and clients fall back to the image URL itself. What exists is kept in memory: the upload
+ * directory is scanned once at startup, then refresh() is called when a job finishes or the files are
+ * deleted, so JSON getters never touch the disk.</li>
+ * <li>Cloudinary: the same image with an on-the-fly w_ transformation</li>
+ * </ul>
+ * Static because entities use it from their JSON getters; the bean only applies the configuration.
+ */
+@Component
+public class ImageRenditions {
+
+    private static final String CLOUDINARY_UPLOAD = "/image/upload/";
+    private static final String LOCAL_PREFIX = "/uploads/";
+    private static final Pattern LOCAL_RENDITION = Pattern.compile("(.+)_w(\\d{1,9})(\\.[^.]*)?");
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditions.class);
+
+    private static volatile List<Integer> widths = List.of(160, 320, 640, 1280);
+    private static volatile Path uploadDir = Path.of("./uploads/");
+    // file name -> widths generated for it (files without renditions have no entry)
+    private static final Map<String, List<Integer>> generated = new ConcurrentHashMap<>();
+
+    public ImageRenditions(@Value("${app.images.rendition-widths:160,320,640,1280}") List<Integer> configured,
+                           @Value("${file.upload-dir:./uploads/}") String configuredUploadDir) {
+        widths = configured.stream().distinct().sorted().toList();
+        uploadDir = Path.of(configuredUploadDir);
+        generated.clear();
+        scan();
+    }
+
+    public static List<Integer> widths() {
+        return widths;
+    }
+
+    // "abc_photo.png" -> "abc_photo_w320.png"
+    public static String localName(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0
+                ? filename + "_w" + width
+                : filename.substring(0, dot) + "_w" + width + filename.substring(dot);
+    }
+
+    // The reverse: "abc_photo_w320.png" -> "abc_photo.png" (for a configured width), otherwise the name itself
+    public static String originalName(String filename) {
+        Matcher matcher = LOCAL_RENDITION.matcher(filename);
+        if (matcher.matches() && widths.contains(Integer.parseInt(matcher.group(2)))) {
+            return matcher.group(1) + (matcher.group(3) == null ? "" : matcher.group(3));
+        }
+        return filename;
+    }
+
+    // Renditions that exist now (what the JSON of products and categories lists)
+    public static Map<Integer, String> forUrl(String url) {
+        if (url != null && url.startsWith(LOCAL_PREFIX)) {
+            String filename = url.substring(LOCAL_PREFIX.length());
+            Map<Integer, String> renditions = new LinkedHashMap<>();
+            for (int width : generated.getOrDefault(filename, List.of())) {
+                renditions.put(width, localName(url, width));
+            }
+            return renditions;
+        }
+        return planned(url);
+    }
+
+    // Renditions an optimization job produces for the URL, generated or not yet
+    public static Map<Integer, String> planned(String url) {
+        if (url == null || url.isBlank()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, String> renditions = new LinkedHashMap<>();
+        int cloudinary = url.indexOf(CLOUDINARY_UPLOAD);
+        if (cloudinary >= 0) {
+            int insertAt = cloudinary + CLOUDINARY_UPLOAD.length();
+            for (int width : widths) {
+                renditions.put(width, url.substring(0, insertAt)
+                        + "c_limit,w_" + width + ",f_auto,q_auto/" + url.substring(insertAt));
+            }
+        } else if (url.startsWith(LOCAL_PREFIX)) {
+            for (int width : widths) {
+                renditions.put(width, localName(url, width));
+            }
+        }
+        return renditions;
+    }
+
+    // After the renditions of a local file were written or deleted: re-reads which ones exist
+    public static void refresh(String filename) {
+        if (filename.isEmpty() || filename.contains("/")) {
+            return;
+        }
+        List<Integer> existing = new ArrayList<>();
+        for (int width : widths) {
+            if (Files.isRegularFile(uploadDir.resolve(localName(filename, width)))) {
+                existing.add(width);
+            }
+        }
+        if (existing.isEmpty()) {
+            generated.remove(filename);
+        } else {
+            generated.put(filename, List.copyOf(existing));
+        }
+    }
+
+    // One directory listing: every "name_w320.jpg" of a configured width counts for "name.jpg"
+    private static void scan() {
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+        Map<String, List<Integer>> found = new HashMap<>();
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            files.map(file -> LOCAL_RENDITION.matcher(file.getFileName().toString()))
+                    .filter(matcher -> matcher.matches() && widths.contains(Integer.parseInt(matcher.group(2))))
+                    .forEach(matcher -> found
+                            .computeIfAbsent(originalName(matcher.group()), original -> new ArrayList<>())
+                            .add(Integer.parseInt(matcher.group(2))));
+        } catch (IOException e) {
+            logger.warn("Could not list {} for image renditions: {}", uploadDir, e.getMessage());
+            return;
+        }
+        found.forEach((original, existing) -> generated.put(original, existing.stream().sorted().toList()));
+        logger.info("Image renditions: {} files with renditions in {}", found.size(), uploadDir);
+    }
+}
@@ -0,0 +1,138 @@
+package com.ecommerce.backend.config;
+
+import com.ecommerce.backend.metrics.LatencyRecorder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named executor with a hard bound on queued work and its own metrics
+ * (active, queued, completed, rejected, queue wait and run time).
+ * A full executor rejects with TaskRejectedException instead of queueing without limit.
+ * <ul>
+ * <li>{@link #platform}: fixed pool of platform threads, for CPU-bound work.</li>
+ * <li>{@link #virtual}: a virtual thread per task, at most maxConcurrent running,
+ * for blocking I/O (waiting tasks are parked virtual threads, not pooled threads).</li>
+ * </ul>
+ */
+public class InstrumentedExecutor implements AsyncTaskExecutor, AutoCloseable {
+
+    public record Stats(String name, int maxConcurrent, int active, int queued, int queueCapacity,
+                        long completed, long failed, long rejected,
+                        LatencyRecorder.Snapshot queueWait, LatencyRecorder.Snapshot run) {
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final ExecutorService delegate;
+    // Virtual mode only: admission (running + queued) and running permits
+    private final Semaphore admitted;
+    private final Semaphore running;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyRecorder queueWait = new LatencyRecorder();
+    private final LatencyRecorder runTime = new LatencyRecorder();
+
+    private InstrumentedExecutor(String name, int maxConcurrent, int queueCapacity, ExecutorService delegate,
+                                 boolean virtual) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.delegate = delegate;
+        this.admitted = virtual ? new Semaphore(maxConcurrent + queueCapacity) : null;
+        this.running = virtual ? new Semaphore(maxConcurrent) : null;
+    }
+
+    public static InstrumentedExecutor platform(String name, int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name(name + "-", 1).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        return new InstrumentedExecutor(name, threads, queueCapacity, pool, false);
+    }
+
+    public static InstrumentedExecutor virtual(String name, int maxConcurrent, int queueCapacity) {
+        ExecutorService perTask = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        return new InstrumentedExecutor(name, maxConcurrent, queueCapacity, perTask, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (admitted != null && !admitted.tryAcquire()) {
+            reject(null);
+        }
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> run(task, submitted));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            if (admitted != null) {
+                admitted.release();
+            }
+            reject(e);
+        }
+    }
+
+    private void run(Runnable task, long submitted) {
+        if (running != null) {
+            running.acquireUninterruptibly();
+        }
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        long start = System.nanoTime();
+        queueWait.record(start - submitted);
+        try {
+            task.run();
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            runTime.recordSince(start);
+            active.decrementAndGet();
+            if (running != null) {
+                running.release();
+                admitted.release();
+            }
+        }
+    }
+
+    private void reject(RejectedExecutionException cause) {
+        rejected.increment();
+        throw new TaskRejectedException("Executor '" + name + "' is full (" + maxConcurrent + " running, "
+                + queueCapacity + " queued)", cause);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(name, maxConcurrent, active.get(), queued.get(), queueCapacity,
+                completed.sum(), failed.sum(), rejected.sum(), queueWait.snapshot(), runTime.snapshot());
+    }
+
+    // Lets queued work finish on shutdown (bounded by the wait)
+    @Override
+    public void close() throws InterruptedException {
+        delegate.shutdown();
+        if (!delegate.awaitTermination(30, TimeUnit.SECONDS)) {
+            delegate.shutdownNow();
+        }
+    }
+}
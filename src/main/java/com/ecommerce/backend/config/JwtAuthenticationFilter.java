@@ -57,27 +57,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         // 3️⃣ Validate token and authenticate
-        if (token != null && jwtUtil.validateToken(token)) {
-            String username = jwtUtil.getUsernameFromToken(token);
-
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                // Ensure admin exists in DB
-                if (adminService.getAdminByUsername(username).isPresent()) {
-
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(
-                                    username,
-                                    null,
-                                    List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
-                            );
-
-                    authentication.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                }
+        // One signature check per token (then cached until it expires), and the
+        // admin lookup is cached too: an admin request normally costs no DB query.
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = jwtUtil.getVerifiedUsername(token);
+
+            // Ensure admin exists in DB
+            if (username != null && adminService.adminExists(username)) {
+
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(
+                                username,
+                                null,
+                                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                        );
+
+                authentication.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                );
+
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         }
 
@@ -1,5 +1,7 @@
 package com.ecommerce.backend.config;
 
+import com.ecommerce.backend.cache.BoundedTtlCache;
+import com.ecommerce.backend.cache.CacheStats;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -8,6 +10,10 @@ import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 
 @Component
@@ -16,7 +22,15 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secretKey;
 
+    @Value("${app.auth.token-cache.max-entries:10000}")
+    private int tokenCacheSize;
+
     private Key key;
+    // Thread-safe and immutable: built once instead of on every call
+    private JwtParser parser;
+    // SHA-256(token) -> username, each entry expiring with its token
+    private BoundedTtlCache<String, String> verifiedTokens;
+
     private static final long EXPIRATION_MS = 2 * 60 * 60 * 1000;
     @PostConstruct
     public void init() {
@@ -24,6 +38,8 @@ public class JwtUtil {
             throw new IllegalStateException("SECRET_KEY is missing!");
         }
         key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+        verifiedTokens = new BoundedTtlCache<>("verifiedTokens", tokenCacheSize, Duration.ofMillis(EXPIRATION_MS));
     }
 
     public String generateToken(String username) {
@@ -36,6 +52,35 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Verifies the token once and returns its subject, or null if it is invalid or expired.
+     * A token that was already verified is answered from the cache without re-checking the HMAC.
+     */
+    public String getVerifiedUsername(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String cacheKey = sha256(token);
+        String cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = getAllClaims(token);
+            String username = claims.getSubject();
+            Date expiration = claims.getExpiration();
+            if (username != null && expiration != null) {
+                long ttlMs = expiration.getTime() - System.currentTimeMillis();
+                if (ttlMs > 0) {
+                    verifiedTokens.put(cacheKey, username, Duration.ofMillis(ttlMs));
+                }
+            }
+            return username;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String getUsernameFromToken(String token) {
         return getAllClaims(token).getSubject();
     }
@@ -45,19 +90,23 @@ public class JwtUtil {
     }
 
     private Claims getAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public boolean validateToken(String token) {
+        return getVerifiedUsername(token) != null;
+    }
+
+    public CacheStats tokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    private static String sha256(String token) {
         try {
-            getAllClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
@@ -0,0 +1,65 @@
+package com.ecommerce.backend.config;
+
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * One DependencyGuard per outbound dependency, configured under app.resilience.{name}.*
+ * (any setting left out keeps the default below). Stats: /api/metrics/dependencies.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    public static final String CLOUDINARY_GUARD = "cloudinaryGuard";
+    public static final String CLOUDINARY_UPLOAD_GUARD = "cloudinaryUploadGuard";
+    public static final String SMTP_GUARD = "smtpGuard";
+
+    // Admin API and destroy calls (BlobStore, OrphanReconciler): small requests, so their latency
+    // is a good timeout basis. Uploads have their own guard and don't skew it.
+    @Bean(name = CLOUDINARY_GUARD, destroyMethod = "close")
+    public DependencyGuard cloudinaryGuard(Environment env) {
+        return new DependencyGuard("cloudinary", settings(env, "cloudinary", new DependencyGuard.Settings(
+                4, Duration.ofSeconds(1), 20, 10, 0.5, Duration.ofSeconds(30), 2,
+                Duration.ofSeconds(2), Duration.ofSeconds(30))));
+    }
+
+    // Uploads: the timeout learns the fixed overhead; each upload adds its size at the slowest accepted
+    // throughput (CloudinaryService, app.resilience.cloudinary-upload.min-throughput).
+    // 10 slots = the upload executor's 8 + room for single (non-batch) uploads.
+    @Bean(name = CLOUDINARY_UPLOAD_GUARD, destroyMethod = "close")
+    public DependencyGuard cloudinaryUploadGuard(Environment env) {
+        return new DependencyGuard("cloudinary-upload", settings(env, "cloudinary-upload",
+                new DependencyGuard.Settings(10, Duration.ofMillis(100), 20, 10, 0.5, Duration.ofSeconds(30), 2,
+                        Duration.ofSeconds(5), Duration.ofSeconds(60))));
+    }
+
+    // Batches are sent from the mail executor (4 at a time), never from request threads.
+    // Platform threads: Jakarta Mail's SMTPTransport does its socket I/O inside synchronized methods,
+    // which would pin a virtual thread's carrier for the whole send.
+    @Bean(name = SMTP_GUARD, destroyMethod = "close")
+    public DependencyGuard smtpGuard(Environment env) {
+        return new DependencyGuard("smtp", settings(env, "smtp", new DependencyGuard.Settings(
+                4, Duration.ofSeconds(1), 10, 5, 0.5, Duration.ofSeconds(60), 1,
+                Duration.ofSeconds(2), Duration.ofSeconds(30))),
+                Thread.ofPlatform().name("smtp-call-", 1).daemon().factory());
+    }
+
+    private static DependencyGuard.Settings settings(Environment env, String name, DependencyGuard.Settings defaults) {
+        String prefix = "app.resilience." + name + ".";
+        return new DependencyGuard.Settings(
+                env.getProperty(prefix + "max-concurrent", Integer.class, defaults.maxConcurrent()),
+                env.getProperty(prefix + "max-wait", Duration.class, defaults.maxWait()),
+                env.getProperty(prefix + "window-size", Integer.class, defaults.windowSize()),
+                env.getProperty(prefix + "minimum-calls", Integer.class, defaults.minimumCalls()),
+                env.getProperty(prefix + "failure-rate-threshold", Double.class, defaults.failureRateThreshold()),
+                env.getProperty(prefix + "open-duration", Duration.class, defaults.openDuration()),
+                env.getProperty(prefix + "half-open-probes", Integer.class, defaults.halfOpenProbes()),
+                env.getProperty(prefix + "min-timeout", Duration.class, defaults.minTimeout()),
+                env.getProperty(prefix + "max-timeout", Duration.class, defaults.maxTimeout())
+        );
+    }
+}
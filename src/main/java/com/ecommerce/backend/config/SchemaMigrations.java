@@ -0,0 +1,108 @@
+package com.ecommerce.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off data fixes that ddl-auto=update can't do, run after Hibernate has updated the
+ * schema and before the web server accepts requests. Every step is idempotent.
+ * PostgreSQL only: a fresh database (tests, H2) has nothing to migrate.
+ */
+@Component
+public class SchemaMigrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    // table -> sequence used since IDs moved from IDENTITY to pooled sequences (allocationSize 50)
+    private static final List<String[]> SEQUENCES = List.of(
+            new String[]{"product", "product_seq"},
+            new String[]{"category", "category_seq"},
+            new String[]{"orders", "orders_seq"},
+            new String[]{"order_item", "order_item_seq"}
+    );
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Injected so this runs only once the schema update is done
+    public SchemaMigrations(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        String database = jdbcTemplate.execute((java.sql.Connection c) -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            return;
+        }
+        alignSequences();
+        moveOrderItemsOffJoinTable();
+        backfillOrderTotals();
+    }
+
+    // Rows created with IDENTITY already use low ids: start every sequence past them
+    private void alignSequences() {
+        for (String[] pair : SEQUENCES) {
+            String table = pair[0];
+            String sequence = pair[1];
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+            if (maxId != null && lastValue != null && lastValue < maxId + ALLOCATION_SIZE) {
+                jdbcTemplate.queryForObject("SELECT setval(?, ?)", Long.class, sequence, maxId + ALLOCATION_SIZE);
+                logger.info("Moved sequence {} past existing ids of {} (max id {})", sequence, table, maxId);
+            }
+        }
+    }
+
+    // Order items used to be linked through orders_products; they now carry order_id
+    private void moveOrderItemsOffJoinTable() {
+        Integer joinColumns = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_name = 'orders_products' AND column_name IN ('order_id', 'products_id')
+                """, Integer.class);
+        if (joinColumns == null || joinColumns < 2) {
+            return;
+        }
+        int moved = jdbcTemplate.update("""
+                UPDATE order_item i SET order_id = op.order_id
+                FROM orders_products op
+                WHERE op.products_id = i.id AND i.order_id IS NULL
+                """);
+        if (moved > 0) {
+            logger.info("Linked {} order items to their order from the legacy orders_products table", moved);
+        }
+        // The join rows keep foreign keys to order_item and orders: left in place, deleting an order
+        // or orphan-removing its items fails. Remove what was copied, then the table once it's empty.
+        int copied = jdbcTemplate.update("""
+                DELETE FROM orders_products op
+                USING order_item i
+                WHERE op.products_id = i.id AND i.order_id = op.order_id
+                """);
+        Integer left = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_products", Integer.class);
+        if (left != null && left == 0) {
+            jdbcTemplate.execute("DROP TABLE orders_products");
+            logger.info("Dropped the legacy orders_products table ({} rows copied)", copied);
+        } else if (left != null) {
+            logger.warn("{} orders_products rows don't match their order item and were kept", left);
+        }
+    }
+
+    // Orders placed before totals were stored: compute them once from the item snapshots
+    private void backfillOrderTotals() {
+        int filled = jdbcTemplate.update("""
+                UPDATE orders o SET total_amount = COALESCE(
+                    (SELECT SUM(ROUND(CAST(i.price * 100 AS numeric)) * i.quantity) / 100.0
+                     FROM order_item i WHERE i.order_id = o.id), 0)
+                WHERE o.total_amount IS NULL
+                """);
+        if (filled > 0) {
+            logger.info("Stored the total of {} existing orders", filled);
+        }
+    }
+}
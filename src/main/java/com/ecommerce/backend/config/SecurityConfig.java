@@ -58,6 +58,7 @@ public class SecurityConfig {
                         // Public
                         .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/catalog/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/orders").permitAll() // Fixed: Order request will now pass CORS
                         .requestMatchers("/uploads/**").permitAll()
 
@@ -65,6 +66,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/products/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/categories/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/orders/**").hasAuthority("ROLE_ADMIN")
+                        .requestMatchers("/api/metrics/**").hasAuthority("ROLE_ADMIN")
+                        .requestMatchers("/api/uploads/**").hasAuthority("ROLE_ADMIN")
 
                         // Authenticate any other request not explicitly permitted above
                         .anyRequest().authenticated()
@@ -0,0 +1,73 @@
+package com.ecommerce.backend.config;
+
+import com.ecommerce.backend.metrics.PinningMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Virtual-thread mode: spring.threads.virtual.enabled (VIRTUAL_THREADS). Spring Boot then runs Tomcat
+ * requests, the default task executor and @Scheduled jobs on virtual threads; the executors in AsyncConfig
+ * stay as they are (image work is CPU-bound, mail/upload work is already on capped virtual threads).
+ * In this mode:
+ * <ul>
+ * <li>the DataSource is wrapped in a ConnectionLimitingDataSource sized to the Hikari pool, so that
+ * requests queue for a connection in order instead of all contending inside the pool;</li>
+ * <li>a PinningMonitor reports virtual threads pinned to their carrier, with the frame responsible
+ * (/api/metrics/pinning). -Djdk.tracePinnedThreads=full prints every pin with its stack instead.</li>
+ * </ul>
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    public static final String ENABLED = "spring.threads.virtual.enabled";
+
+    // Static: BeanPostProcessors are created before the other beans of this class
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSource(Environment environment) {
+        boolean enabled = environment.getProperty("app.datasource.limit-concurrency", Boolean.class,
+                environment.getProperty(ENABLED, Boolean.class, false));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource dataSource)
+                        || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                int maxConcurrent = environment.getProperty("app.datasource.max-concurrent", Integer.class, 10);
+                Duration maxWait = environment.getProperty("app.datasource.max-wait", Duration.class,
+                        Duration.ofSeconds(30));
+                if (dataSource instanceof HikariDataSource hikari) {
+                    // Unset until the pool starts, then Hikari's default of 10
+                    if (hikari.getMaximumPoolSize() > 0) {
+                        maxConcurrent = hikari.getMaximumPoolSize();
+                    }
+                    maxWait = Duration.ofMillis(hikari.getConnectionTimeout());
+                }
+                logger.info("DataSource {}: at most {} connections in use, callers wait up to {} ms in order",
+                        beanName, maxConcurrent, maxWait.toMillis());
+                return new ConnectionLimitingDataSource(dataSource, maxConcurrent, maxWait);
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public PinningMonitor pinningMonitor(Environment environment) {
+        boolean enabled = environment.getProperty("app.threads.pinning-monitor.enabled", Boolean.class,
+                environment.getProperty(ENABLED, Boolean.class, false));
+        if (!enabled) {
+            return PinningMonitor.disabled();
+        }
+        return PinningMonitor.start(environment.getProperty("app.threads.pinning-monitor.threshold", Duration.class,
+                Duration.ofMillis(20)));
+    }
+}
@@ -49,6 +49,7 @@ public class AdminController {
         }
 
         Admin admin = adminOpt.get();
+        String previousUsername = admin.getUsername();
 
         // Update username if provided
         if (updatedAdmin.getUsername() != null && !updatedAdmin.getUsername().isBlank()) {
@@ -68,6 +69,11 @@ public class AdminController {
         }
 
         Admin savedAdmin = adminService.saveAdmin(admin);
+
+        // Tokens issued to the old username must stop working right away
+        adminService.evictAdmin(previousUsername);
+        adminService.evictAdmin(savedAdmin.getUsername());
+
         return ResponseEntity.ok(savedAdmin);
     }
 }
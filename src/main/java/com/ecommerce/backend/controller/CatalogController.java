@@ -0,0 +1,26 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.service.CatalogVersionService;
+import com.ecommerce.backend.service.CatalogVersionService.CatalogVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/catalog")
+public class CatalogController {
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    // Cheap poll for clients: refetch the catalog only when this changes
+    @GetMapping("/version")
+    public ResponseEntity<CatalogVersion> getVersion() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(catalogVersionService.current());
+    }
+}
@@ -1,13 +1,28 @@
 package com.ecommerce.backend.controller;
 
+import com.ecommerce.backend.dto.ChangeSet;
 import com.ecommerce.backend.entity.Category;
+import com.ecommerce.backend.event.CatalogChangedEvent;
 import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.service.BlobStore;
+import com.ecommerce.backend.service.CatalogSnapshot;
+import com.ecommerce.backend.service.CatalogSnapshotService;
+import com.ecommerce.backend.service.CatalogVersionService;
+import com.ecommerce.backend.service.CatalogVersionService.CatalogVersion;
 import com.ecommerce.backend.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -20,31 +35,75 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Served from the pre-rendered snapshot (see CatalogSnapshotService)
     @GetMapping
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public ResponseEntity<byte[]> getAllCategories(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest
+    ) {
+        String encoding = CatalogSnapshot.negotiate(acceptEncoding);
+        CatalogVersion version = catalogVersionService.current();
+        // 304 straight from the version number: no snapshot, no DB
+        if (webRequest.checkNotModified(version.etag(encoding), version.lastModifiedMillis())) {
+            return null;
+        }
+        return catalogSnapshotService.categories().toResponse(encoding);
+    }
+
+    // ✅ DELTA SYNC: only what changed since the client's cursor (ISO-8601, omit for a full sync)
+    @GetMapping("/changes")
+    public ChangeSet<Category> getChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since
+    ) {
+        return categoryService.getChangesSince(since);
     }
 
     // ✅ FIX: Use @RequestBody to receive JSON from React
     @PostMapping
+    @Transactional
     public Category createCategory(@RequestBody Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        blobStore.retain(Collections.singletonList(saved.getImage()));
+        eventPublisher.publishEvent(CatalogChangedEvent.categorySaved(saved.getId()));
+        return saved;
     }
 
     // ✅ FIX: Use @RequestBody and update the existing entity
     @PutMapping("/{id}")
+    @Transactional
     public Category updateCategory(@PathVariable Long id, @RequestBody Category categoryDetails) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
 
+        String previousImage = category.getImage();
         category.setName(categoryDetails.getName());
         category.setImage(categoryDetails.getImage()); // This is now the Cloudinary URL string
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        blobStore.updateReferences(Collections.singletonList(previousImage), Collections.singletonList(saved.getImage()));
+        eventPublisher.publishEvent(CatalogChangedEvent.categorySaved(saved.getId()));
+        return saved;
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteCategory(@PathVariable Long id) {
-        categoryRepository.deleteById(id);
+        categoryRepository.findById(id)
+                .ifPresent(category -> blobStore.release(Collections.singletonList(category.getImage())));
+        // Soft delete: the row stays as a tombstone for /changes
+        categoryRepository.softDelete(id, Instant.now());
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryDeleted(id));
     }
 }
\ No newline at end of file
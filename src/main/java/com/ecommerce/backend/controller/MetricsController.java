@@ -0,0 +1,131 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.cache.CacheStats;
+import com.ecommerce.backend.cache.CatalogCache;
+import com.ecommerce.backend.config.ConnectionLimitingDataSource;
+import com.ecommerce.backend.config.InstrumentedExecutor;
+import com.ecommerce.backend.config.JwtUtil;
+import com.ecommerce.backend.metrics.PinningMonitor;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import com.ecommerce.backend.service.AdminService;
+import com.ecommerce.backend.service.BlobStore;
+import com.ecommerce.backend.service.OrderIntakeService;
+import com.ecommerce.backend.service.OrphanReconciler;
+import com.ecommerce.backend.service.OutboxDispatcher;
+import com.ecommerce.backend.service.SuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Admin-only runtime statistics (see SecurityConfig)
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private List<InstrumentedExecutor> executors;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private OrphanReconciler orphanReconciler;
+
+    @Autowired
+    private UploadFileController uploadFileController;
+
+    @Autowired
+    private List<DependencyGuard> dependencyGuards;
+
+    @Autowired
+    private PinningMonitor pinningMonitor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @GetMapping("/cache")
+    public List<CacheStats> getCacheStats() {
+        return catalogCache.stats();
+    }
+
+    @GetMapping("/auth")
+    public List<CacheStats> getAuthCacheStats() {
+        return List.of(jwtUtil.tokenCacheStats(), adminService.adminCacheStats());
+    }
+
+    @GetMapping("/suggest")
+    public SuggestionService.SuggestStats getSuggestStats() {
+        return suggestionService.stats();
+    }
+
+    @GetMapping("/orders")
+    public OrderIntakeService.IntakeStats getOrderIntakeStats() {
+        return orderIntakeService.stats();
+    }
+
+    @GetMapping("/outbox")
+    public OutboxDispatcher.OutboxStats getOutboxStats() {
+        return outboxDispatcher.stats();
+    }
+
+    @GetMapping("/executors")
+    public List<InstrumentedExecutor.Stats> getExecutorStats() {
+        return executors.stream().map(InstrumentedExecutor::stats).toList();
+    }
+
+    @GetMapping("/blobs")
+    public BlobStore.BlobStats getBlobStats() {
+        return blobStore.stats();
+    }
+
+    // Small /uploads files served from memory
+    @GetMapping("/uploads")
+    public CacheStats getUploadCacheStats() {
+        return uploadFileController.cacheStats();
+    }
+
+    @GetMapping("/orphans")
+    public OrphanReconciler.OrphanStats getOrphanStats() {
+        return orphanReconciler.stats();
+    }
+
+    // Cloudinary / SMTP: circuit state, failure rate, current timeout, latency
+    @GetMapping("/dependencies")
+    public List<DependencyGuard.Stats> getDependencyStats() {
+        return dependencyGuards.stream().map(DependencyGuard::stats).toList();
+    }
+
+    // Virtual-thread mode (VirtualThreadConfig): pinned virtual threads by site
+    @GetMapping("/pinning")
+    public PinningMonitor.Stats getPinningStats() {
+        return pinningMonitor.stats();
+    }
+
+    // Virtual-thread mode: callers holding / waiting for a database connection (null when not limited)
+    @GetMapping("/connections")
+    public ConnectionLimitingDataSource.Stats getConnectionStats() {
+        return dataSource instanceof ConnectionLimitingDataSource limited ? limited.stats() : null;
+    }
+}
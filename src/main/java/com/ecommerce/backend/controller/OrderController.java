@@ -1,13 +1,27 @@
 package com.ecommerce.backend.controller;
 
+import com.ecommerce.backend.dto.OrderFilter;
 import com.ecommerce.backend.entity.Order;
 import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.service.OrderExportService;
+import com.ecommerce.backend.service.OrderIntakeService;
+import com.ecommerce.backend.service.OrderPricingService;
+import com.ecommerce.backend.service.StockService;
 import com.ecommerce.backend.service.OrderService;
-import com.ecommerce.backend.service.EmailService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -24,13 +38,58 @@ public class OrderController {
     private OrderService orderService;
 
     @Autowired
-    private EmailService emailService;
+    private OrderExportService orderExportService;
 
-    @GetMapping
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OrderPricingService orderPricingService;
+
+    @Autowired
+    private StockService stockService;
+
+    // Legacy: every order ever placed -> /api/orders?unpaged=true
+    @GetMapping(params = "unpaged=true")
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
+    // Paginated + filtered, e.g. /api/orders?status=Pending&city=Rabat&page=0&size=20&sort=date,desc
+    @GetMapping
+    public PagedModel<Order> getOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String customer,
+            @PageableDefault(size = 20, sort = "date", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        OrderFilter filter = new OrderFilter(status, city, from, to, customer);
+        return new PagedModel<>(orderService.findOrders(filter, pageable));
+    }
+
+    // Accounting export, streamed: /api/orders/export?format=csv&from=2025-01-01T00:00:00&to=2025-02-01T00:00:00
+    @GetMapping("/export")
+    public void exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response
+    ) throws IOException {
+        OrderExportService.Format exportFormat = format.equalsIgnoreCase("ndjson")
+                ? OrderExportService.Format.NDJSON
+                : OrderExportService.Format.CSV;
+        String extension = exportFormat == OrderExportService.Format.NDJSON ? "ndjson" : "csv";
+
+        response.setContentType(exportFormat == OrderExportService.Format.NDJSON
+                ? "application/x-ndjson;charset=UTF-8"
+                : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + extension + "\"");
+
+        orderExportService.export(exportFormat, from, to, response.getOutputStream());
+    }
+
     @GetMapping("/{id}")
     public Order getOrder(@PathVariable Long id) {
         return orderRepository.findById(id)
@@ -44,33 +103,28 @@ public class OrderController {
             order.setDate(order.getDate().plusHours(1));
         }
 
-        // 2. Save to DB
-        Order savedOrder = orderRepository.save(order);
-
-        // 3. Calculate total
-        double totalAmount = 0;
-        if (savedOrder.getProducts() != null) {
-            totalAmount = savedOrder.getProducts().stream()
-                    .mapToDouble(p -> p.getPrice() * p.getQuantity())
-                    .sum();
-        }
+        // 2. Prices, names and total come from the catalog, never from the client
+        orderPricingService.price(order);
 
-        // 4. Send Notification (NO TRY-CATCH HERE)
-        // Let the @Async service handle the background work and logging
-        emailService.sendOrderNotification(
-                savedOrder.getCustomerName(),
-                totalAmount,
-                savedOrder.getId()
-        );
-
-        return savedOrder;
+        // 3. Save to DB (group-committed with other orders when enabled, 429 if the queue is full)
+        // The admin email is queued in the outbox by the same transaction: no email is lost if SMTP is down
+        return orderIntakeService.place(order);
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public Order updateOrder(@PathVariable Long id, @RequestBody Order orderDetails) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        // Give back the old lines' stock and take the new ones' (same transaction, 409 if short)
+        if (OrderService.holdsStock(order.getStatus())) {
+            stockService.release(order.getProducts());
+        }
+        if (OrderService.holdsStock(orderDetails.getStatus())) {
+            stockService.reserve(orderDetails.getProducts());
+        }
+
         order.setCustomerName(orderDetails.getCustomerName());
         order.setCustomerEmail(orderDetails.getCustomerEmail());
         order.setCustomerPhone(orderDetails.getCustomerPhone());
@@ -79,6 +133,8 @@ public class OrderController {
         order.setDate(orderDetails.getDate());
         order.setStatus(orderDetails.getStatus());
         order.setProducts(orderDetails.getProducts());
+        // Admin edits keep the item snapshots they send; only the stored total follows them
+        order.setTotalAmount(OrderPricingService.total(order.getProducts()));
 
         return orderRepository.save(order);
     }
@@ -93,7 +149,14 @@ public class OrderController {
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteOrder(@PathVariable Long id) {
-        orderRepository.deleteById(id);
+        orderRepository.findById(id).ifPresent(order -> {
+            // A deleted order no longer holds its units (same transaction as the delete)
+            if (OrderService.holdsStock(order.getStatus())) {
+                stockService.release(order.getProducts());
+            }
+            orderRepository.delete(order);
+        });
     }
 }
\ No newline at end of file
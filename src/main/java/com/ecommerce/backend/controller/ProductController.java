@@ -1,12 +1,36 @@
 package com.ecommerce.backend.controller;
 
+import com.ecommerce.backend.dto.ChangeSet;
+import com.ecommerce.backend.dto.ProductFilter;
+import com.ecommerce.backend.dto.ProductPage;
 import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.event.CatalogChangedEvent;
 import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.search.ProductSearchIndex;
+import com.ecommerce.backend.search.SuggestionTrie;
+import com.ecommerce.backend.service.BlobStore;
+import com.ecommerce.backend.service.CatalogSnapshot;
+import com.ecommerce.backend.service.CatalogSnapshotService;
+import com.ecommerce.backend.service.CatalogVersionService;
+import com.ecommerce.backend.service.CatalogVersionService.CatalogVersion;
+import com.ecommerce.backend.service.ProductSearchService;
+import com.ecommerce.backend.service.ProductService;
+import com.ecommerce.backend.service.SuggestionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -15,17 +39,99 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
-    // ✅ GET ALL PRODUCTS
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // ✅ GET ALL PRODUCTS (legacy, unpaged) -> /api/products?unpaged=true
+    // Served from the pre-rendered snapshot: no DB query, no JSON serialization.
+    @GetMapping(params = "unpaged=true")
+    public ResponseEntity<byte[]> getAllProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest
+    ) {
+        String encoding = CatalogSnapshot.negotiate(acceptEncoding);
+        CatalogVersion version = catalogVersionService.current();
+        // 304 straight from the version number: no snapshot, no DB
+        if (webRequest.checkNotModified(version.etag(encoding), version.lastModifiedMillis())) {
+            return null;
+        }
+        return catalogSnapshotService.products().toResponse(encoding);
+    }
+
+    // ✅ GET PRODUCTS PAGE (keyset pagination + server-side filters)
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public ProductPage getProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(name = "isAvailable", required = false) Boolean isAvailable,
+            @RequestParam(required = false) Boolean onPromotion,
+            WebRequest webRequest
+    ) {
+        CatalogVersion version = catalogVersionService.current();
+        if (webRequest.checkNotModified(version.etag(null), version.lastModifiedMillis())) {
+            return null;
+        }
+        ProductFilter filter = new ProductFilter(category, minPrice, maxPrice, isAvailable, onPromotion);
+        return productService.getProductPage(cursor, limit, filter);
+    }
+
+    // ✅ DELTA SYNC: only what changed since the client's cursor (ISO-8601, omit for a full sync)
+    @GetMapping("/changes")
+    public ChangeSet<Product> getChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since
+    ) {
+        return productService.getChangesSince(since);
+    }
+
+    // ✅ SEARCH (in-memory index, ranked; the last word matches as a prefix)
+    @GetMapping("/search")
+    public List<Product> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return productSearchService.search(q, limit).stream()
+                .map(ProductSearchIndex.Hit::product)
+                .toList();
+    }
+
+    // ✅ TYPEAHEAD (product and category names, most popular first)
+    @GetMapping("/suggest")
+    public List<SuggestionTrie.Suggestion> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "" + SuggestionService.TOP_K) int limit
+    ) {
+        return suggestionService.suggest(prefix, limit);
     }
 
     // ✅ CREATE PRODUCT (JSON ONLY)
     @PostMapping
     @Transactional
     public Product createProduct(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        blobStore.retain(saved.getImages());
+        eventPublisher.publishEvent(CatalogChangedEvent.productSaved(saved.getId()));
+        return saved;
     }
 
     // ✅ UPDATE PRODUCT (JSON ONLY)
@@ -45,14 +151,39 @@ public class ProductController {
         product.setOnPromotion(updated.isOnPromotion());
         product.setCategory(updated.getCategory());
         product.setDescription(updated.getDescription());
+        List<String> previousImages = product.getImages() == null ? List.of() : new ArrayList<>(product.getImages());
         product.setImages(updated.getImages());
+        // Explicit: when only images change, just the element collection is dirty and @PreUpdate
+        // doesn't run, so /changes would miss the edit
+        product.setUpdatedAt(Instant.now());
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        blobStore.updateReferences(previousImages, saved.getImages());
+        eventPublisher.publishEvent(CatalogChangedEvent.productSaved(saved.getId()));
+        return saved;
+    }
+
+    // ✅ SET STOCK: {"stock": 25} (null = stop tracking). Separate from PUT so it can't race with orders
+    @PutMapping("/{id}/stock")
+    public Product updateStock(@PathVariable Long id, @RequestBody Map<String, Integer> body) {
+        if (body.get("stock") != null && body.get("stock") < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock can't be negative");
+        }
+        if (productRepository.setStock(id, body.get("stock"), Instant.now()) == 0) {
+            throw new RuntimeException("Product not found");
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.productSaved(id));
+        return productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
     // ✅ DELETE PRODUCT
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteProduct(@PathVariable Long id) {
-        productRepository.deleteById(id);
+        productRepository.findById(id).ifPresent(product -> blobStore.release(product.getImages()));
+        // Soft delete: the row stays as a tombstone for /changes
+        productRepository.softDelete(id, Instant.now());
+        eventPublisher.publishEvent(CatalogChangedEvent.productDeleted(id));
     }
 }
@@ -0,0 +1,58 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.service.CloudinaryService;
+import com.ecommerce.backend.service.ImageProcessingService;
+import com.ecommerce.backend.service.ImageProcessingService.ImageJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+// Local image uploads (served from /uploads/**), optimized in the background, and Cloudinary batch uploads
+@RestController
+@RequestMapping("/api/uploads")
+@CrossOrigin(origins = "${app.frontend-url}")
+public class UploadController {
+
+    @Autowired
+    private ImageProcessingService imageProcessingService;
+
+    @Autowired
+    private CloudinaryService cloudinaryService;
+
+    // ✅ UPLOAD: returns right away with the URL; the optimized file replaces the original when ready
+    @PostMapping(consumes = "multipart/form-data")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImageJob upload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "1280") int width
+    ) throws IOException {
+        return imageProcessingService.saveAndDelegateOptimization(file, width);
+    }
+
+    // ✅ RE-OPTIMIZE an existing upload (joins the running job if there is one)
+    @PostMapping("/{filename}/optimize")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImageJob optimize(@PathVariable String filename, @RequestParam(defaultValue = "1280") int width) {
+        return imageProcessingService.optimize(filename, width);
+    }
+
+    // ✅ JOB STATUS: QUEUED -> RUNNING -> DONE / FAILED
+    @GetMapping("/{filename}/status")
+    public ImageJob status(@PathVariable String filename) {
+        return imageProcessingService.status(filename);
+    }
+
+    // ✅ BATCH UPLOAD TO CLOUDINARY: all product photos in one request, uploaded in parallel.
+    // Returns the URLs in the order of the files.
+    @PostMapping(value = "/cloudinary", consumes = "multipart/form-data")
+    public List<String> uploadToCloudinary(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(defaultValue = "products") String folder
+    ) throws IOException {
+        return cloudinaryService.uploadImages(files, folder);
+    }
+}
@@ -0,0 +1,209 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.cache.BoundedTtlCache;
+import com.ecommerce.backend.cache.CacheStats;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Serves local uploads (/uploads/**) directly instead of through the generic resource handler:
+ * <ul>
+ * <li>Every file is revalidated (no-cache), never cached as immutable: optimization
+ * (POST /api/uploads/{filename}/optimize) rewrites a file and its renditions in place, under the same
+ * name, and the hash in a name is that of the original upload, not of the bytes served now.</li>
+ * <li>Strong ETag from size + modification time: every rewrite is an atomic rename, so both change.
+ * If-None-Match / If-Modified-Since answer 304.</li>
+ * <li>Single byte ranges (Range, If-Range) answer 206; several ranges get the whole file.</li>
+ * <li>Small files (thumbnails) are kept in an LRU cache; larger ones are sent with sendfile when Tomcat
+ * supports it (plain HTTP), otherwise with FileChannel.transferTo.</li>
+ * </ul>
+ */
+@RestController
+public class UploadFileController {
+
+    // Tomcat's sendfile request attributes (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern SAFE_NAME = Pattern.compile("[a-zA-Z0-9_-][a-zA-Z0-9_.-]*");
+    private static final String REVALIDATE = CacheControl.noCache().cachePublic().getHeaderValue();
+
+    private record CachedFile(byte[] content, long lastModifiedMicros) {
+    }
+
+    // "bytes=0-99", "bytes=100-", "bytes=-100" -> [start, end)
+    record ByteRange(long start, long end) {
+
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        // null = ignore the header (malformed or several ranges) and send the whole file
+        static ByteRange parse(String header, long size) {
+            if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+                return null;
+            }
+            String spec = header.substring("bytes=".length()).trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    long suffix = Long.parseLong(last);
+                    return suffix <= 0 || size == 0 ? UNSATISFIABLE : new ByteRange(Math.max(0, size - suffix), size);
+                }
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? size : Math.min(size, Long.parseLong(last) + 1);
+                if (start >= size) {
+                    return UNSATISFIABLE;
+                }
+                return end <= start ? null : new ByteRange(start, end);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private final Path uploadDir;
+    private final long cacheMaxFileSize;
+    private final BoundedTtlCache<String, CachedFile> smallFiles;
+
+    public UploadFileController(@Value("${file.upload-dir:./uploads/}") String uploadDir,
+                                @Value("${app.uploads.cache-max-entries:512}") int cacheMaxEntries,
+                                @Value("${app.uploads.cache-max-file-size:64KB}") DataSize cacheMaxFileSize) {
+        this.uploadDir = Path.of(uploadDir).toAbsolutePath().normalize();
+        this.cacheMaxFileSize = cacheMaxFileSize.toBytes();
+        this.smallFiles = new BoundedTtlCache<>("uploads", cacheMaxEntries, Duration.ofHours(1));
+    }
+
+    // ✅ SERVE AN UPLOAD (public, see SecurityConfig)
+    @RequestMapping(value = "/uploads/{filename}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // No paths, no dot-files (".upload-*.tmp" are uploads still being written)
+        if (!SAFE_NAME.matcher(filename).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = uploadDir.resolve(filename);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long lastModifiedMicros = attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+        byte[] content = attributes.size() <= cacheMaxFileSize ? smallFile(filename, file, lastModifiedMicros) : null;
+        long size = content != null ? content.length : attributes.size();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMicros) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, attributes.lastModifiedTime().toMillis())) {
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        ByteRange range = ifRangeMatches(request, etag, attributes.lastModifiedTime().toMillis())
+                ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), size)
+                : null;
+        if (range == ByteRange.UNSATISFIABLE) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        long start = range == null ? 0 : range.start();
+        long end = range == null ? size : range.end();
+        if (range != null) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+        }
+        response.setContentLengthLong(end - start);
+        if (RequestMethod.HEAD.name().equals(request.getMethod())) {
+            return;
+        }
+
+        if (content != null) {
+            response.getOutputStream().write(content, (int) start, (int) (end - start));
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat sends the bytes itself after we return: kernel sendfile, no copy through the JVM heap
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, out);
+                }
+            }
+        }
+    }
+
+    public CacheStats cacheStats() {
+        return smallFiles.stats();
+    }
+
+    // Cached bytes if the file hasn't changed since they were read
+    private byte[] smallFile(String filename, Path file, long lastModifiedMicros) throws IOException {
+        CachedFile cached = smallFiles.get(filename);
+        if (cached != null && cached.lastModifiedMicros() == lastModifiedMicros) {
+            return cached.content();
+        }
+        byte[] content = Files.readAllBytes(file);
+        smallFiles.put(filename, new CachedFile(content, lastModifiedMicros));
+        return content;
+    }
+
+    // If-Range: the range only applies to the version the client already has part of
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModifiedMillis) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModifiedMillis / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.backend.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result of a delta sync: what was created/updated and which ids were deleted
+ * since the client's cursor. Pass nextSince back as "since" on the next call.
+ */
+public record ChangeSet<T>(
+        List<T> upserted,
+        List<Long> deleted,
+        Instant nextSince
+) {
+
+    // updatedAt is stamped before commit, so a row can become visible slightly after
+    // its timestamp. Keeping the cursor this far behind "now" means a late commit is
+    // sent twice (upserts are idempotent) instead of never.
+    private static final Duration SETTLE_TIME = Duration.ofSeconds(5);
+
+    public static Instant nextSince(Instant since, Instant queriedAt) {
+        Instant settled = queriedAt.minus(SETTLE_TIME);
+        return since != null && since.isAfter(settled) ? since : settled;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One order line as read by the export cursor (order columns repeated per item).
+ * A constructor projection, not an entity: nothing accumulates in the persistence context.
+ */
+public record OrderExportRow(
+        Long orderId,
+        LocalDateTime date,
+        String status,
+        String customerName,
+        String customerEmail,
+        String customerPhone,
+        String customerAddress,
+        String city,
+        Double totalAmount,
+        Long itemProductId,
+        String itemName,
+        Double itemPrice,
+        Integer itemQuantity
+) {
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional server-side filters for the admin order list.
+ * customer matches the exact phone number or email.
+ */
+public record OrderFilter(
+        String status,
+        String city,
+        LocalDateTime from,
+        LocalDateTime to,
+        String customer
+) {
+}
@@ -0,0 +1,14 @@
+package com.ecommerce.backend.dto;
+
+/**
+ * Optional server-side filters for the paginated product catalog.
+ * A null field means "don't filter on this".
+ */
+public record ProductFilter(
+        String category,
+        Double minPrice,
+        Double maxPrice,
+        Boolean isAvailable,
+        Boolean onPromotion
+) {
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.backend.dto;
+
+import com.ecommerce.backend.entity.Product;
+
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated catalog.
+ * nextCursor is opaque for the client and is null on the last page.
+ */
+public record ProductPage(
+        List<Product> items,
+        String nextCursor
+) {
+}
@@ -1,20 +1,55 @@
 package com.ecommerce.backend.entity;
 
+import com.ecommerce.backend.config.ImageRenditions;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.Instant;
+import java.util.Map;
 
 @Getter
 @Setter
 @Entity
+@Table(indexes = @Index(name = "idx_category_updated_at", columnList = "updated_at"))
+// Same tombstone scheme as Product
+@SQLRestriction("deleted = false")
 public class Category {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "category_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private String image;
+
+    private Instant updatedAt;
+
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
+    // srcset for the image: width -> URL
+    @JsonProperty(value = "imageRenditions", access = JsonProperty.Access.READ_ONLY)
+    public Map<Integer, String> getImageRenditions() {
+        return ImageRenditions.forUrl(image);
+    }
 }
@@ -3,18 +3,29 @@ package com.ecommerce.backend.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Admin list filters (see OrderSpecifications); most lists are sorted by date
+        @Index(name = "idx_orders_status_date", columnList = "status, date"),
+        @Index(name = "idx_orders_city_date", columnList = "city, date"),
+        @Index(name = "idx_orders_date", columnList = "date"),
+        @Index(name = "idx_orders_customer_phone", columnList = "customer_phone"),
+        @Index(name = "idx_orders_customer_email", columnList = "customer_email")
+})
 public class Order {
 
+    // Pooled sequence (50 ids per round trip) instead of IDENTITY, which disables JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     private String customerName;
@@ -28,6 +39,27 @@ public class Order {
     private String status; // Pending, Confirmed, Delivered
     private LocalDateTime date;
 
-    @OneToMany(cascade = CascadeType.ALL)
-    private List<OrderItem> products;
+    // Sum of the item price snapshots, stored once so lists and emails never recompute it
+    private Double totalAmount;
+
+    // Items carry the order_id FK themselves (no orders_products join table),
+    // so they are written in the same batched INSERT.
+    // Items of a whole page of orders are loaded with one "IN (...)" query.
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    private List<OrderItem> products = new ArrayList<>();
+
+    // Keeps both sides of the association in sync (Jackson and updateOrder go through here)
+    public void setProducts(List<OrderItem> products) {
+        if (products == this.products) {
+            return;
+        }
+        List<OrderItem> incoming = products == null ? List.of() : new ArrayList<>(products);
+        this.products.forEach(item -> item.setOrder(null));
+        this.products.clear();
+        incoming.forEach(item -> {
+            item.setOrder(this);
+            this.products.add(item);
+        });
+    }
 }
@@ -0,0 +1,55 @@
+package com.ecommerce.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A notification to send, written in the same transaction as the order it is about:
+ * if the order commits, the email is guaranteed to be attempted (OutboxDispatcher),
+ * even if SMTP is down or the app restarts in between.
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+public class OutboxMessage {
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    // Payload of the "new order" email (enough to render it without loading the order)
+    private Long orderId;
+    private String customerName;
+    private Double totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private Instant createdAt;
+    private Instant nextAttemptAt;
+    private Instant sentAt;
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public static OutboxMessage orderPlaced(Order order) {
+        OutboxMessage message = new OutboxMessage();
+        message.setOrderId(order.getId());
+        message.setCustomerName(order.getCustomerName());
+        message.setTotalAmount(order.getTotalAmount());
+        message.setCreatedAt(Instant.now());
+        message.setNextAttemptAt(message.getCreatedAt());
+        return message;
+    }
+}
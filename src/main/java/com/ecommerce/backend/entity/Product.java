@@ -1,18 +1,35 @@
 package com.ecommerce.backend.entity;
 
+import com.ecommerce.backend.config.ImageRenditions;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty; // 👈 REQUIRED IMPORT
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        // Keyset pagination seeks on id (primary key); these cover the catalog filters
+        @Index(name = "idx_product_category_id", columnList = "category, id"),
+        @Index(name = "idx_product_available_id", columnList = "is_available, id"),
+        @Index(name = "idx_product_promotion_id", columnList = "on_promotion, id"),
+        @Index(name = "idx_product_price", columnList = "price"),
+        @Index(name = "idx_product_updated_at", columnList = "updated_at")
+})
+// Deleted products stay as tombstones for delta sync but are invisible to every entity query
+@SQLRestriction("deleted = false")
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -27,9 +44,38 @@ public class Product {
 
     private boolean onPromotion;
 
+    // Units left; null = stock not tracked for this product.
+    // Only changed by conditional UPDATEs (ProductRepository.reserveStock/setStock), never by
+    // saving the entity, so a product edit can't overwrite a concurrent reservation.
+    @Column(updatable = false)
+    private Integer stock;
+
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // LAZY: the repository read methods fetch images with an entity graph (one query).
+    // @BatchSize is the safety net for any other path: 100 products -> 1 extra SELECT, not 100.
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     private List<String> images; // store URLs
+
+    // Delta sync (/api/products/changes): last write time + soft-delete flag
+    private Instant updatedAt;
+
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted;
+
+    // Not called for changes to images alone (only the collection is dirty): set updatedAt explicitly then
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
+    // srcset for each image, e.g. [{"160": ".../c_limit,w_160,.../a.jpg", "320": ...}]
+    @JsonProperty(value = "imageRenditions", access = JsonProperty.Access.READ_ONLY)
+    public List<Map<Integer, String>> getImageRenditions() {
+        return images == null ? List.of() : images.stream().map(ImageRenditions::forUrl).toList();
+    }
 }
\ No newline at end of file
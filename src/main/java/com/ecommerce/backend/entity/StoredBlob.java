@@ -0,0 +1,59 @@
+package com.ecommerce.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One stored copy of an uploaded file, keyed by the SHA-256 of the uploaded bytes.
+ * Uploading the same bytes again reuses it (no new file, no reprocessing, no new Cloudinary asset).
+ * refCount = how many product/category image URLs point at it; BlobStore sweeps blobs
+ * that have been unreferenced for longer than the grace period.
+ */
+@Getter
+@Setter
+@Entity
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_blob_sha256_storage", columnNames = {"sha256", "storage"}),
+                @UniqueConstraint(name = "uk_blob_url", columnNames = "url")
+        },
+        indexes = @Index(name = "idx_blob_ref_count_unreferenced", columnList = "ref_count, unreferenced_since")
+)
+public class StoredBlob {
+
+    public enum Storage {
+        LOCAL, CLOUDINARY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "blob_seq")
+    @SequenceGenerator(name = "blob_seq", sequenceName = "blob_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Storage storage;
+
+    // Public URL, as stored in Product.images / Category.image
+    @Column(nullable = false, length = 1000)
+    private String url;
+
+    // Cloudinary public_id and resource_type (needed to delete the asset)
+    private String remoteId;
+    private String resourceType;
+
+    private long size;
+
+    private int refCount;
+
+    private Instant createdAt;
+
+    // Set while refCount = 0; the sweeper only deletes blobs unreferenced for a while
+    private Instant unreferencedSince;
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.backend.event;
+
+/**
+ * Published after a product or category is created, updated or deleted.
+ * Listeners (caches, snapshots, ...) use it to drop exactly what changed.
+ */
+public record CatalogChangedEvent(Type type, Long id, boolean deleted) {
+
+    public enum Type {
+        PRODUCT,
+        CATEGORY
+    }
+
+    public static CatalogChangedEvent productSaved(Long id) {
+        return new CatalogChangedEvent(Type.PRODUCT, id, false);
+    }
+
+    public static CatalogChangedEvent productDeleted(Long id) {
+        return new CatalogChangedEvent(Type.PRODUCT, id, true);
+    }
+
+    public static CatalogChangedEvent categorySaved(Long id) {
+        return new CatalogChangedEvent(Type.CATEGORY, id, false);
+    }
+
+    public static CatalogChangedEvent categoryDeleted(Long id) {
+        return new CatalogChangedEvent(Type.CATEGORY, id, true);
+    }
+}
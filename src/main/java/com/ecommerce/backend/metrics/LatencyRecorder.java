@@ -0,0 +1,62 @@
+package com.ecommerce.backend.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Percentiles are bucket upper bounds: cheap enough for every call, accurate to 2x.
+ */
+public class LatencyRecorder {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public record Snapshot(long count, double meanMicros, long p50Micros, long p99Micros, long maxMicros) {
+    }
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long n = count.sum();
+        return new Snapshot(
+                n,
+                n == 0 ? 0.0 : (double) totalMicros.sum() / n,
+                percentile(n, 0.50),
+                percentile(n, 0.99),
+                maxMicros.get()
+        );
+    }
+
+    private long percentile(long n, double quantile) {
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i == 0 ? 0 : 1L << i; // upper bound of bucket i is 2^i - 1 µs
+            }
+        }
+        return maxMicros.get();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.backend.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts virtual threads that blocked while pinned to their carrier thread (on Java 21: blocking
+ * inside synchronized, or in a native frame), from the JFR event jdk.VirtualThreadPinned.
+ * Events are grouped by site: the innermost frame outside the JDK, i.e. our code or the dependency
+ * that holds the monitor. The first event of each site is logged with its stack.
+ * Only pins longer than the threshold are recorded (JFR's default is 20 ms).
+ */
+public class PinningMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinningMonitor.class);
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_SITES = 200;
+    private static final int TOP_SITES = 20;
+    private static final String OTHER_SITES = "(other)";
+
+    public record Site(String frame, long count) {
+    }
+
+    public record Stats(boolean enabled, long events, LatencyRecorder.Snapshot duration, List<Site> topSites) {
+    }
+
+    private final RecordingStream stream;
+    private final LongAdder events = new LongAdder();
+    private final LatencyRecorder durations = new LatencyRecorder();
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    private PinningMonitor(RecordingStream stream) {
+        this.stream = stream;
+    }
+
+    public static PinningMonitor disabled() {
+        return new PinningMonitor(null);
+    }
+
+    public static PinningMonitor start(Duration threshold) {
+        RecordingStream stream = new RecordingStream();
+        PinningMonitor monitor = new PinningMonitor(stream);
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, monitor::record);
+        stream.startAsync();
+        logger.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+        return monitor;
+    }
+
+    void record(RecordedEvent event) {
+        events.increment();
+        durations.record(event.getDuration().toNanos());
+        String site = site(event.getStackTrace());
+        LongAdder count = sites.get(site);
+        if (count == null) {
+            if (sites.size() >= MAX_SITES) {
+                site = OTHER_SITES;
+            }
+            count = sites.computeIfAbsent(site, key -> {
+                logger.warn("Virtual thread pinned for {} ms at {}:{}", event.getDuration().toMillis(), key,
+                        stack(event.getStackTrace()));
+                return new LongAdder();
+            });
+        }
+        count.increment();
+    }
+
+    public Stats stats() {
+        List<Site> top = sites.entrySet().stream()
+                .map(entry -> new Site(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(Site::count).reversed())
+                .limit(TOP_SITES)
+                .toList();
+        return new Stats(stream != null, events.sum(), durations.snapshot(), top);
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    // Innermost frame that isn't the JDK parking the thread: "com.sun.mail.smtp.SMTPTransport.readServerResponse:2441"
+    static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "(no stack)";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return frame(frame);
+            }
+        }
+        return frame(stackTrace.getFrames().getFirst());
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String stack(RecordedStackTrace stackTrace) {
+        StringBuilder stack = new StringBuilder();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                stack.append(System.lineSeparator()).append("\tat ").append(frame(frame));
+            }
+        }
+        return stack.toString();
+    }
+}
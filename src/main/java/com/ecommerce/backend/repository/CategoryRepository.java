@@ -2,7 +2,41 @@ package com.ecommerce.backend.repository;
 
 import com.ecommerce.backend.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Long> {}
+public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    // Every image URL a live category uses (orphan reconciliation)
+    @Query("SELECT c.image FROM Category c WHERE c.image IS NOT NULL")
+    List<String> findAllImageUrls();
+
+    // Categories showing an image (their renditions changed when its optimization job finished)
+    @Query("SELECT c.id FROM Category c WHERE c.image = :url")
+    List<Long> findIdsByImage(String url);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Category c SET c.updatedAt = :now WHERE c.id IN :ids")
+    int touch(Collection<Long> ids, Instant now);
+
+    // --- Delta sync (both use idx_category_updated_at) ---
+
+    List<Category> findByUpdatedAtAfterOrderByUpdatedAtAsc(Instant since);
+
+    // Native: tombstones are hidden from JPQL by @SQLRestriction
+    @Query(value = "SELECT id FROM category WHERE deleted = true AND updated_at > :since", nativeQuery = true)
+    List<Long> findDeletedIdsSince(Instant since);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Category c SET c.deleted = true, c.updatedAt = :now WHERE c.id = :id")
+    int softDelete(Long id, Instant now);
+}
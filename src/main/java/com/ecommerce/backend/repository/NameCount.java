@@ -0,0 +1,9 @@
+package com.ecommerce.backend.repository;
+
+// Projection for "GROUP BY name" queries
+public interface NameCount {
+
+    String getName();
+
+    Long getTotal();
+}
@@ -1,8 +1,76 @@
 package com.ecommerce.backend.repository;
 
+import com.ecommerce.backend.dto.OrderExportRow;
 import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {}
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+
+    // Units sold per item name: popularity for typeahead suggestions
+    @Query("SELECT i.name AS name, SUM(i.quantity) AS total FROM OrderItem i GROUP BY i.name")
+    List<NameCount> sumQuantityByItemName();
+
+    String EXPORT_SELECT = """
+            SELECT new com.ecommerce.backend.dto.OrderExportRow(
+                o.id, o.date, o.status, o.customerName, o.customerEmail, o.customerPhone,
+                o.customerAddress, o.city, o.totalAmount, i.productId, i.name, i.price, i.quantity)
+            FROM Order o LEFT JOIN o.products i
+            """;
+    String EXPORT_ORDER = " ORDER BY o.id, i.id";
+
+    // Forward-only cursor for the export: rows are fetched 500 at a time
+    // (needs an open read-only transaction so PostgreSQL keeps the cursor).
+    // One query per combination of bounds rather than "(:from IS NULL OR ...)", so the planner
+    // sees a plain range on orders.date and can use its index.
+    default Stream<OrderExportRow> streamExportRows(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null) {
+            return streamExportRowsBetween(from, to);
+        }
+        if (from != null) {
+            return streamExportRowsFrom(from);
+        }
+        if (to != null) {
+            return streamExportRowsBefore(to);
+        }
+        return streamAllExportRows();
+    }
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + EXPORT_ORDER)
+    Stream<OrderExportRow> streamAllExportRows();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + "WHERE o.date >= :from" + EXPORT_ORDER)
+    Stream<OrderExportRow> streamExportRowsFrom(LocalDateTime from);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + "WHERE o.date < :to" + EXPORT_ORDER)
+    Stream<OrderExportRow> streamExportRowsBefore(LocalDateTime to);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + "WHERE o.date >= :from AND o.date < :to" + EXPORT_ORDER)
+    Stream<OrderExportRow> streamExportRowsBetween(LocalDateTime from, LocalDateTime to);
+}
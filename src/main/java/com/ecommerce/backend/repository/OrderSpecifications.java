@@ -0,0 +1,47 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.OrderFilter;
+import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WHERE clause of the admin order list. Like ProductSpecifications, only the
+ * filters that are set are added, so each one can use its index on "orders".
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> matching(OrderFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.status() != null && !filter.status().isBlank()) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.city() != null && !filter.city().isBlank()) {
+                predicates.add(cb.equal(root.get("city"), filter.city()));
+            }
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.get("date"), filter.to()));
+            }
+            if (filter.customer() != null && !filter.customer().isBlank()) {
+                String customer = filter.customer().trim();
+                predicates.add(cb.or(
+                        cb.equal(root.get("customerPhone"), customer),
+                        cb.equal(root.get("customerEmail"), customer)
+                ));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.entity.OutboxMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Oldest first, uses idx_outbox_status_next_attempt
+    List<OutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            OutboxMessage.Status status, Instant now, Limit limit);
+
+    long countByStatus(OutboxMessage.Status status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = com.ecommerce.backend.entity.OutboxMessage.Status.SENT, "
+            + "m.sentAt = :now, m.attempts = m.attempts + 1, m.lastError = NULL WHERE m.id IN :ids")
+    int markSent(Collection<Long> ids, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.attempts = :attempts, "
+            + "m.nextAttemptAt = :nextAttemptAt, m.lastError = :error WHERE m.id = :id")
+    int markAttempt(Long id, OutboxMessage.Status status, int attempts, Instant nextAttemptAt, String error);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.status = com.ecommerce.backend.entity.OutboxMessage.Status.SENT "
+            + "AND m.sentAt < :before")
+    int deleteSentBefore(Instant before);
+}
@@ -1,9 +1,93 @@
 package com.ecommerce.backend.repository;
 
+import com.ecommerce.backend.dto.ProductFilter;
 import com.ecommerce.backend.entity.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {}
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // Images are fetched in the same query (LEFT JOIN) instead of one SELECT per product
+    @Override
+    @EntityGraph(attributePaths = "images")
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "images")
+    Optional<Product> findById(Long id);
+
+    @EntityGraph(attributePaths = "images")
+    List<Product> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Every image URL a live product uses (orphan reconciliation)
+    @Query("SELECT DISTINCT i FROM Product p JOIN p.images i")
+    List<String> findAllImageUrls();
+
+    // Products showing an image (their renditions changed when its optimization job finished)
+    @Query("SELECT DISTINCT p.id FROM Product p JOIN p.images i WHERE i = :url")
+    List<Long> findIdsByImage(String url);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id IN :ids")
+    int touch(Collection<Long> ids, Instant now);
+
+    // Products per category: popularity of category suggestions
+    @Query("SELECT p.category AS name, COUNT(p) AS total FROM Product p GROUP BY p.category")
+    List<NameCount> countByCategory();
+
+    // --- Delta sync (both use idx_product_updated_at) ---
+
+    @EntityGraph(attributePaths = "images")
+    List<Product> findByUpdatedAtAfterOrderByUpdatedAtAsc(Instant since);
+
+    // Native: tombstones are hidden from JPQL by @SQLRestriction
+    @Query(value = "SELECT id FROM product WHERE deleted = true AND updated_at > :since", nativeQuery = true)
+    List<Long> findDeletedIdsSince(Instant since);
+
+    // --- Stock: atomic conditional updates, the row lock is only held until commit ---
+
+    // 1 = reserved (or stock not tracked), 0 = not enough left. Joins the caller's transaction.
+    // updatedAt is stamped because stock is part of the product JSON (delta sync, snapshots).
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.updatedAt = :now "
+            + "WHERE p.id = :id AND (p.stock IS NULL OR p.stock >= :quantity)")
+    int reserveStock(Long id, int quantity, Instant now);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity, p.updatedAt = :now "
+            + "WHERE p.id = :id AND p.stock IS NOT NULL")
+    int releaseStock(Long id, int quantity, Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = :stock, p.updatedAt = :now WHERE p.id = :id")
+    int setStock(Long id, Integer stock, Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.deleted = true, p.updatedAt = :now WHERE p.id = :id")
+    int softDelete(Long id, Instant now);
 
+    // Keyset (seek) pagination: "WHERE id > :afterId ... ORDER BY id LIMIT :limit".
+    // No OFFSET, so page 500 costs the same as page 1.
+    // Two queries per page whatever the page size: the ids, then the products with their images
+    // (a collection fetch join can't be combined with LIMIT without paging in memory).
+    default List<Product> findPageAfter(Long afterId, ProductFilter filter, int limit) {
+        List<Long> ids = findPageIdsAfter(afterId, filter, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return findByIdInOrderByIdAsc(ids);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.ProductFilter;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    // Ids only: the page is then loaded with its images in a single query
+    List<Long> findPageIdsAfter(Long afterId, ProductFilter filter, int limit);
+}
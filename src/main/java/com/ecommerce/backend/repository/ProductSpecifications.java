@@ -0,0 +1,47 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.ProductFilter;
+import com.ecommerce.backend.entity.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the WHERE clause of the catalog queries.
+ * Only the filters that are actually set end up in the SQL, so PostgreSQL can pick
+ * the matching index instead of a generic "(? IS NULL OR ...)" plan.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> afterIdMatching(Long afterId, ProductFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (afterId != null) {
+                predicates.add(cb.greaterThan(root.get("id"), afterId));
+            }
+            if (filter.category() != null && !filter.category().isBlank()) {
+                predicates.add(cb.equal(root.get("category"), filter.category()));
+            }
+            if (filter.minPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), filter.minPrice()));
+            }
+            if (filter.maxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), filter.maxPrice()));
+            }
+            if (filter.isAvailable() != null) {
+                predicates.add(cb.equal(root.get("isAvailable"), filter.isAvailable()));
+            }
+            if (filter.onPromotion() != null) {
+                predicates.add(cb.equal(root.get("onPromotion"), filter.onPromotion()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.entity.StoredBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findBySha256AndStorage(String sha256, StoredBlob.Storage storage);
+
+    // Sweep candidates, uses idx_blob_ref_count_unreferenced
+    List<StoredBlob> findByRefCountAndUnreferencedSinceBeforeOrderByIdAsc(int refCount, Instant before, Limit limit);
+
+    // Which of these files / Cloudinary assets are blobs (the sweep's job, not the orphan reconciler's)
+    @Query("SELECT b.url FROM StoredBlob b WHERE b.url IN :urls")
+    List<String> findTrackedUrls(Collection<String> urls);
+
+    @Query("SELECT b.remoteId FROM StoredBlob b WHERE b.remoteId IN :remoteIds")
+    List<String> findTrackedRemoteIds(Collection<String> remoteIds);
+
+    // Counts are only changed with these UPDATEs, so concurrent edits can't lose an increment
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1, b.unreferencedSince = NULL WHERE b.url = :url")
+    int retain(String url);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, "
+            + "b.unreferencedSince = CASE WHEN b.refCount = 1 THEN :now ELSE b.unreferencedSince END "
+            + "WHERE b.url = :url AND b.refCount > 0")
+    int release(String url, Instant now);
+
+    // A re-upload of an unreferenced blob restarts its grace period
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.unreferencedSince = :now WHERE b.id = :id AND b.refCount = 0")
+    int touch(Long id, Instant now);
+
+    // Claims a blob for deletion; 0 if it was referenced or re-uploaded since it was selected
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.id = :id AND b.refCount = 0 AND b.unreferencedSince < :before")
+    int deleteUnreferenced(Long id, Instant before);
+}
@@ -0,0 +1,321 @@
+package com.ecommerce.backend.resilience;
+
+import com.ecommerce.backend.metrics.LatencyRecorder;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Protects the app from one slow or failing outbound dependency (Cloudinary, SMTP):
+ * <ul>
+ * <li>Bulkhead: at most maxConcurrent calls in flight; callers wait at most maxWait for a slot.</li>
+ * <li>Adaptive timeout: srtt + 4 * rttvar of successful calls, clamped to [minTimeout, maxTimeout], and
+ * doubled (up to maxTimeout) on every timeout until a call succeeds again, as TCP's retransmission timer
+ * does (RFC 6298): when latency settles above the learned timeout, calls soon get long enough to succeed
+ * and feed the new latency back in. Until the first success it is maxTimeout, and half-open probes
+ * always get maxTimeout. Calls whose duration grows with
+ * their payload (uploads) pass a transfer time: it is added to their timeout and left out of the
+ * learned latency, so a run of small calls doesn't make the next large one time out.
+ * The call runs on its own (by default virtual) thread, which is interrupted on timeout and abandoned:
+ * the caller gets its answer right away, but whether the call itself stops depends on the client
+ * (blocking socket reads on a platform thread, e.g. SMTP, ignore the interrupt until their socket timeout).</li>
+ * <li>Circuit breaker: over the last windowSize calls (once there are minimumCalls), a failure rate
+ * of failureRateThreshold or more opens the circuit. Calls are then rejected right away for
+ * openDuration, after which halfOpenProbes trial calls decide between closing and reopening.</li>
+ * </ul>
+ * Rejections throw {@link DependencyUnavailableException}; the call's own exceptions are rethrown as-is.
+ */
+public class DependencyGuard implements AutoCloseable {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public record Settings(int maxConcurrent, Duration maxWait, int windowSize, int minimumCalls,
+                           double failureRateThreshold, Duration openDuration, int halfOpenProbes,
+                           Duration minTimeout, Duration maxTimeout) {
+    }
+
+    public record Stats(String name, State state, double failureRate, long timeoutMillis,
+                        int active, int maxConcurrent, long calls, long failures, long timeouts,
+                        long rejectedBulkhead, long rejectedOpen, long stateChanges,
+                        LatencyRecorder.Snapshot latency) {
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Semaphore bulkhead;
+    private final ExecutorService callThreads;
+
+    // Circuit state, guarded by this (synchronized is fine: nothing blocks while holding it,
+    // so a virtual caller is never parked while pinned)
+    private State state = State.CLOSED;
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    // Adaptive timeout, guarded by this (nanos; srtt = 0 means no sample yet)
+    private double srtt;
+    private double rttvar;
+    private int backoffs; // timeouts since the last success
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejectedBulkhead = new LongAdder();
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder stateChanges = new LongAdder();
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    public DependencyGuard(String name, Settings settings) {
+        this(name, settings, Thread.ofVirtual().name(name + "-call-", 1).factory());
+    }
+
+    /**
+     * @param callThreads where calls run; the default is virtual threads, pass platform threads
+     *                    for clients that block inside synchronized code (it would pin the carrier)
+     */
+    public DependencyGuard(String name, Settings settings, ThreadFactory callThreads) {
+        this(name, settings, callThreads, System::nanoTime);
+    }
+
+    DependencyGuard(String name, Settings settings, ThreadFactory callThreads, LongSupplier clock) {
+        this.name = name;
+        this.settings = settings;
+        this.clock = clock;
+        this.bulkhead = new Semaphore(settings.maxConcurrent());
+        this.window = new boolean[settings.windowSize()];
+        this.callThreads = Executors.newThreadPerTaskExecutor(callThreads);
+    }
+
+    /**
+     * Runs the call with the bulkhead, breaker and timeout applied.
+     */
+    public <T, E extends Exception> T call(Call<T, E> call) throws E {
+        return call(call, Duration.ZERO);
+    }
+
+    /**
+     * Same, for a call that also has to move a payload: transferTime (e.g. its size at the slowest
+     * acceptable throughput) is added to the timeout and subtracted from the latency sample.
+     */
+    public <T, E extends Exception> T call(Call<T, E> call, Duration transferTime) throws E {
+        boolean probe = admit();
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(settings.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            abandonProbe(probe);
+            rejectedBulkhead.increment();
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.BULKHEAD_FULL);
+        }
+
+        calls.increment();
+        long transferNanos = transferTime.toNanos();
+        // A probe that timed out early would keep the circuit flapping without ever learning
+        long timeoutNanos = (probe ? settings.maxTimeout().toNanos() : timeoutNanos()) + transferNanos;
+        long start = clock.getAsLong();
+        // The permit is held until the call really ends, even after a timeout:
+        // the bulkhead bounds what the dependency sees, not just what callers wait for
+        Callable<T> task = () -> {
+            try {
+                return call.call();
+            } finally {
+                bulkhead.release();
+            }
+        };
+        Future<T> future;
+        try {
+            future = callThreads.submit(task);
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            abandonProbe(probe);
+            throw e;
+        }
+
+        try {
+            T result = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            long elapsed = clock.getAsLong() - start;
+            onSuccess(elapsed, Math.max(0, elapsed - transferNanos), probe);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeouts.increment();
+            onTimeout();
+            onFailure(probe);
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.TIMEOUT);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            abandonProbe(probe);
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.TIMEOUT);
+        } catch (ExecutionException e) {
+            onFailure(probe);
+            throw this.<E>rethrow(e.getCause());
+        }
+    }
+
+    // True when the call is a half-open probe
+    private synchronized boolean admit() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAtNanos < settings.openDuration().toNanos()) {
+                rejectedOpen.increment();
+                throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.CIRCUIT_OPEN);
+            }
+            transition(State.HALF_OPEN);
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= settings.halfOpenProbes()) {
+                rejectedOpen.increment();
+                throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.CIRCUIT_OPEN);
+            }
+            probesStarted++;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void abandonProbe(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesStarted--;
+        }
+    }
+
+    // sampleNanos: the elapsed time without the call's transfer allowance
+    private synchronized void onSuccess(long elapsedNanos, long sampleNanos, boolean probe) {
+        latency.record(elapsedNanos);
+        backoffs = 0;
+        // Jacobson/Karels (RFC 6298) smoothing; srtt = 0 means no sample yet
+        sampleNanos = Math.max(1, sampleNanos);
+        if (srtt == 0) {
+            srtt = sampleNanos;
+            rttvar = sampleNanos / 2.0;
+        } else {
+            rttvar = 0.75 * rttvar + 0.25 * Math.abs(srtt - sampleNanos);
+            srtt = 0.875 * srtt + 0.125 * sampleNanos;
+        }
+
+        if (probe && state == State.HALF_OPEN) {
+            if (++probesSucceeded >= settings.halfOpenProbes()) {
+                transition(State.CLOSED);
+                windowNext = 0;
+                windowCount = 0;
+                windowFailures = 0;
+            }
+        } else if (state == State.CLOSED) {
+            recordOutcome(false);
+        }
+    }
+
+    private synchronized void onTimeout() {
+        backoffs = Math.min(backoffs + 1, 30);
+    }
+
+    private synchronized void onFailure(boolean probe) {
+        failures.increment();
+        if (probe && state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            recordOutcome(true);
+            if (windowCount >= settings.minimumCalls()
+                    && (double) windowFailures / windowCount >= settings.failureRateThreshold()) {
+                open();
+            }
+        }
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAtNanos = clock.getAsLong();
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            state = next;
+            stateChanges.increment();
+        }
+    }
+
+    synchronized long timeoutNanos() {
+        long max = settings.maxTimeout().toNanos();
+        if (srtt == 0) {
+            return max;
+        }
+        long adaptive = Math.clamp((long) (srtt + 4 * rttvar), settings.minTimeout().toNanos(), max);
+        return (long) Math.min(max, Math.scalb((double) adaptive, backoffs));
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(name, state,
+                windowCount == 0 ? 0.0 : (double) windowFailures / windowCount,
+                TimeUnit.NANOSECONDS.toMillis(timeoutNanos()),
+                settings.maxConcurrent() - bulkhead.availablePermits(), settings.maxConcurrent(),
+                calls.sum(), failures.sum(), timeouts.sum(), rejectedBulkhead.sum(), rejectedOpen.sum(),
+                stateChanges.sum(), latency.snapshot());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> RuntimeException rethrow(Throwable cause) throws E {
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw (E) cause;
+    }
+
+    @Override
+    public void close() {
+        callThreads.shutdownNow();
+    }
+}
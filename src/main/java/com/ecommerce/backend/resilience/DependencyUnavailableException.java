@@ -0,0 +1,28 @@
+package com.ecommerce.backend.resilience;
+
+/**
+ * Thrown by {@link DependencyGuard} instead of waiting on a dependency that is failing or saturated.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN, BULKHEAD_FULL, TIMEOUT
+    }
+
+    private final String dependency;
+    private final Reason reason;
+
+    public DependencyUnavailableException(String dependency, Reason reason) {
+        super(dependency + " unavailable: " + reason);
+        this.dependency = dependency;
+        this.reason = reason;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,311 @@
+package com.ecommerce.backend.search;
+
+import com.ecommerce.backend.entity.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, category and description, ranked with BM25.
+ * <p>
+ * Documents get a dense int slot; each term keeps parallel int/float arrays of
+ * (slot, weighted term frequency). Updates append a new slot and mark the old one dead,
+ * and the index compacts itself once too many slots are dead. The term dictionary is
+ * sorted so the last query word can be matched as a prefix ("arg" finds "argan").
+ */
+public class ProductSearchIndex {
+
+    // BM25 parameters (usual defaults)
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Field weights: a hit in the name counts more than one in the description
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    // The last query word is also expanded to at most this many terms (highest df first)
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final float PREFIX_DISCOUNT = 0.7f;
+
+    // Score buffers kept for reuse: about as many as searches can run on the CPUs at once
+    private static final int POOLED_ACCUMULATORS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private Doc[] docs = new Doc[1024];
+    private int slotCount;
+    private int liveCount;
+    private double totalLength;
+    private final BlockingQueue<Accumulator> accumulators = new ArrayBlockingQueue<>(POOLED_ACCUMULATORS);
+
+    private record Doc(Product product, float length, String[] terms) {
+    }
+
+    public record Hit(Product product, float score) {
+    }
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        float[] tfs = new float[4];
+        int size;
+        int liveDf;
+
+        void add(int slot, float tf) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            slots[size] = slot;
+            tfs[size] = tf;
+            size++;
+            liveDf++;
+        }
+    }
+
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            slotByProductId.clear();
+            docs = new Doc[Math.max(1024, products.size() * 2)];
+            slotCount = 0;
+            liveCount = 0;
+            totalLength = 0;
+            for (Product product : products) {
+                addLocked(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int limit) {
+        List<String> queryTerms = TextNormalizer.tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            float avgLength = (float) (totalLength / liveCount);
+            Accumulator scores = acquireAccumulator();
+            try {
+                for (int i = 0; i < queryTerms.size(); i++) {
+                    String term = queryTerms.get(i);
+                    Postings exact = terms.get(term);
+                    if (exact != null) {
+                        accumulate(exact, 1f, avgLength, scores);
+                    }
+                    // Search-as-you-type: the word being typed is matched as a prefix too
+                    if (i == queryTerms.size() - 1) {
+                        for (Postings postings : prefixExpansions(term)) {
+                            accumulate(postings, PREFIX_DISCOUNT, avgLength, scores);
+                        }
+                    }
+                }
+                return topHits(scores, limit);
+            } finally {
+                accumulators.offer(scores); // dropped if the pool is full
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- internals (callers hold the lock) ---
+
+    private void addLocked(Product product) {
+        Map<String, Float> weighted = new LinkedHashMap<>();
+        float length = 0;
+        length += addField(weighted, product.getName(), NAME_WEIGHT);
+        length += addField(weighted, product.getCategory(), CATEGORY_WEIGHT);
+        length += addField(weighted, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        if (slotCount == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+        }
+        int slot = slotCount++;
+        docs[slot] = new Doc(product, length, weighted.keySet().toArray(new String[0]));
+        slotByProductId.put(product.getId(), slot);
+        liveCount++;
+        totalLength += length;
+
+        weighted.forEach((term, tf) -> terms.computeIfAbsent(term, t -> new Postings()).add(slot, tf));
+    }
+
+    private static float addField(Map<String, Float> weighted, String text, float weight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        for (String token : tokens) {
+            weighted.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private void removeLocked(Long productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        Doc doc = docs[slot];
+        docs[slot] = null;
+        liveCount--;
+        totalLength -= doc.length();
+        for (String term : doc.terms()) {
+            Postings postings = terms.get(term);
+            if (postings != null) {
+                postings.liveDf--;
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        int dead = slotCount - liveCount;
+        if (dead > 1000 && dead > liveCount / 4) {
+            List<Product> live = new ArrayList<>(liveCount);
+            for (int i = 0; i < slotCount; i++) {
+                if (docs[i] != null) {
+                    live.add(docs[i].product());
+                }
+            }
+            // Already holding the write lock (reentrant)
+            rebuild(live);
+        }
+    }
+
+    private List<Postings> prefixExpansions(String prefix) {
+        Collection<Postings> candidates = terms
+                .subMap(prefix, false, prefix + Character.MAX_VALUE, false)
+                .values();
+        if (candidates.size() <= MAX_PREFIX_EXPANSIONS) {
+            return new ArrayList<>(candidates);
+        }
+        return candidates.stream()
+                .sorted(Comparator.comparingInt((Postings p) -> p.liveDf).reversed())
+                .limit(MAX_PREFIX_EXPANSIONS)
+                .toList();
+    }
+
+    private void accumulate(Postings postings, float boost, float avgLength, Accumulator scores) {
+        if (postings.liveDf <= 0) {
+            return;
+        }
+        double idf = Math.log(1 + (liveCount - postings.liveDf + 0.5) / (postings.liveDf + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int slot = postings.slots[i];
+            Doc doc = docs[slot];
+            if (doc == null) {
+                continue;
+            }
+            float tf = postings.tfs[i];
+            float norm = K1 * (1 - B + B * doc.length() / avgLength);
+            float score = (float) (boost * idf * (tf * (K1 + 1)) / (tf + norm));
+            scores.add(slot, score);
+        }
+    }
+
+    private List<Hit> topHits(Accumulator scores, int limit) {
+        // Min-heap on score, holding the best `limit` slots seen so far
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(scores::score));
+        for (int i = 0; i < scores.touchedCount; i++) {
+            int slot = scores.touched[i];
+            if (top.size() < limit) {
+                top.offer(slot);
+            } else if (scores.score(slot) > scores.score(top.peek())) {
+                top.poll();
+                top.offer(slot);
+            }
+        }
+        Hit[] hits = new Hit[top.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int slot = top.poll();
+            hits[i] = new Hit(docs[slot].product(), scores.score(slot));
+        }
+        return List.of(hits);
+    }
+
+    // Score buffers reused across searches: no boxing and no per-query allocation on the hot path.
+    // A shared pool, not a ThreadLocal: with virtual threads every request is a new thread, so a
+    // per-thread buffer would be allocated (float[slotCount] + int[slotCount]) by every search.
+    private Accumulator acquireAccumulator() {
+        Accumulator pooled = accumulators.poll();
+        return (pooled != null ? pooled : new Accumulator()).reset(slotCount);
+    }
+
+    private static final class Accumulator {
+        float[] scores = new float[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        Accumulator reset(int capacity) {
+            if (scores.length < capacity) {
+                scores = new float[capacity];
+                touched = new int[capacity];
+            } else {
+                for (int i = 0; i < touchedCount; i++) {
+                    scores[touched[i]] = 0f;
+                }
+            }
+            touchedCount = 0;
+            return this;
+        }
+
+        void add(int slot, float score) {
+            if (scores[slot] == 0f) {
+                touched[touchedCount++] = slot;
+            }
+            scores[slot] += score;
+        }
+
+        float score(int slot) {
+            return scores[slot];
+        }
+    }
+}
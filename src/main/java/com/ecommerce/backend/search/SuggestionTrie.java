@@ -0,0 +1,355 @@
+package com.ecommerce.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix (path-compressed) trie for typeahead.
+ * <p>
+ * Every suggestion is indexed from each of its first words, so "Huile d'argan" is found by
+ * "hui", "d a" and "arg". Each node caches the ids of the K most popular suggestions
+ * below it, so a lookup is a walk down at most prefix-length nodes plus a copy of K ids,
+ * whatever the catalog size. Writes only recompute the caches on the touched paths.
+ */
+public class SuggestionTrie {
+
+    // Index at most this many word starts per suggestion (bounds memory on long names)
+    private static final int MAX_WORD_STARTS = 6;
+
+    private static final int[] NO_SLOTS = new int[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    public record Suggestion(String type, Long id, String text, long popularity) {
+
+        String key() {
+            return type + ":" + id;
+        }
+    }
+
+    public record Stats(int suggestions, int nodes, long labelChars, long estimatedBytes) {
+    }
+
+    private static final class Node {
+        String label;
+        char[] firstChars = new char[0];
+        Node[] children = NO_NODES;
+        int[] terminals = NO_SLOTS; // suggestions whose indexed key ends exactly here
+        int[] top = NO_SLOTS;       // best K suggestions in this subtree, most popular first
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private final int topK;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private final List<Suggestion> suggestions = new ArrayList<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+
+    private final Comparator<Integer> byPopularity;
+
+    public SuggestionTrie(int topK) {
+        this.topK = topK;
+        this.byPopularity = Comparator
+                .comparingLong((Integer slot) -> suggestions.get(slot).popularity()).reversed()
+                .thenComparing(slot -> suggestions.get(slot).text());
+    }
+
+    // Bulk load: insert everything, then compute the top-K caches in one post-order pass
+    public void rebuild(List<Suggestion> all) {
+        lock.writeLock().lock();
+        try {
+            root.firstChars = new char[0];
+            root.children = NO_NODES;
+            root.top = NO_SLOTS;
+            slotByKey.clear();
+            suggestions.clear();
+            freeSlots.clear();
+            for (Suggestion suggestion : all) {
+                addLocked(suggestion, false);
+            }
+            recomputeAll(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(Suggestion suggestion) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(suggestion.key());
+            addLocked(suggestion, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(type + ":" + id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> lookup(String prefix, int limit) {
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int pos = 0;
+            while (pos < key.length()) {
+                int i = childIndex(node, key.charAt(pos));
+                if (i < 0) {
+                    return List.of();
+                }
+                Node child = node.children[i];
+                int common = commonPrefix(child.label, key, pos);
+                if (pos + common == key.length()) {
+                    node = child; // prefix ends on or inside this edge
+                    break;
+                }
+                if (common < child.label.length()) {
+                    return List.of();
+                }
+                pos += common;
+                node = child;
+            }
+            int n = Math.min(limit, node.top.length);
+            List<Suggestion> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(suggestions.get(node.top[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[3]; // nodes, label chars, bytes
+            walk(root, totals);
+            return new Stats(slotByKey.size(), (int) totals[0], totals[1], totals[2]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- internals (callers hold the write lock) ---
+
+    static List<String> indexKeys(String text) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < Math.min(tokens.size(), MAX_WORD_STARTS); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private void addLocked(Suggestion suggestion, boolean maintainTop) {
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = suggestions.size();
+            suggestions.add(suggestion);
+        } else {
+            slot = freeSlots.remove(freeSlots.size() - 1);
+            suggestions.set(slot, suggestion);
+        }
+        slotByKey.put(suggestion.key(), slot);
+        for (String key : indexKeys(suggestion.text())) {
+            insert(root, key, 0, slot, maintainTop);
+        }
+    }
+
+    private void removeLocked(String suggestionKey) {
+        Integer slot = slotByKey.remove(suggestionKey);
+        if (slot == null) {
+            return;
+        }
+        for (String key : indexKeys(suggestions.get(slot).text())) {
+            remove(root, key, 0, slot);
+        }
+        freeSlots.add(slot);
+    }
+
+    private void insert(Node node, String key, int pos, int slot, boolean maintainTop) {
+        if (pos == key.length()) {
+            node.terminals = appendSlot(node.terminals, slot);
+        } else {
+            int i = childIndex(node, key.charAt(pos));
+            if (i < 0) {
+                Node leaf = new Node(key.substring(pos));
+                leaf.terminals = new int[]{slot};
+                leaf.top = new int[]{slot};
+                addChild(node, leaf);
+            } else {
+                Node child = node.children[i];
+                int common = commonPrefix(child.label, key, pos);
+                if (common < child.label.length()) {
+                    // Split the edge: node -> mid(common part) -> child(rest)
+                    Node mid = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    mid.firstChars = new char[]{child.label.charAt(0)};
+                    mid.children = new Node[]{child};
+                    mid.top = child.top;
+                    node.children[i] = mid;
+                    child = mid;
+                }
+                insert(child, key, pos + common, slot, maintainTop);
+            }
+        }
+        if (maintainTop) {
+            recomputeTop(node);
+        }
+    }
+
+    private void remove(Node node, String key, int pos, int slot) {
+        if (pos == key.length()) {
+            node.terminals = removeSlot(node.terminals, slot);
+        } else {
+            int i = childIndex(node, key.charAt(pos));
+            if (i < 0) {
+                return;
+            }
+            Node child = node.children[i];
+            int common = commonPrefix(child.label, key, pos);
+            if (common < child.label.length()) {
+                return;
+            }
+            remove(child, key, pos + common, slot);
+            if (child.terminals.length == 0 && child.children.length == 0) {
+                removeChild(node, i);
+            } else if (child.terminals.length == 0 && child.children.length == 1) {
+                // Keep the trie compressed: merge a pass-through node into its only child
+                Node only = child.children[0];
+                only.label = child.label + only.label;
+                node.children[i] = only;
+            }
+        }
+        recomputeTop(node);
+    }
+
+    private void recomputeAll(Node node) {
+        for (Node child : node.children) {
+            recomputeAll(child);
+        }
+        recomputeTop(node);
+    }
+
+    private void recomputeTop(Node node) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int slot : node.terminals) {
+            candidates.add(slot);
+        }
+        for (Node child : node.children) {
+            for (int slot : child.top) {
+                candidates.add(slot);
+            }
+        }
+        node.top = candidates.stream()
+                .sorted(byPopularity)
+                .limit(topK)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int childIndex(Node node, char c) {
+        char[] firsts = node.firstChars;
+        int lo = 0;
+        int hi = firsts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firsts[mid] < c) {
+                lo = mid + 1;
+            } else if (firsts[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static void addChild(Node node, Node child) {
+        char c = child.label.charAt(0);
+        int at = 0;
+        while (at < node.firstChars.length && node.firstChars[at] < c) {
+            at++;
+        }
+        char[] firsts = new char[node.firstChars.length + 1];
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.firstChars, 0, firsts, 0, at);
+        System.arraycopy(node.children, 0, children, 0, at);
+        firsts[at] = c;
+        children[at] = child;
+        System.arraycopy(node.firstChars, at, firsts, at + 1, node.firstChars.length - at);
+        System.arraycopy(node.children, at, children, at + 1, node.children.length - at);
+        node.firstChars = firsts;
+        node.children = children;
+    }
+
+    private static void removeChild(Node node, int i) {
+        char[] firsts = new char[node.firstChars.length - 1];
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.firstChars, 0, firsts, 0, i);
+        System.arraycopy(node.children, 0, children, 0, i);
+        System.arraycopy(node.firstChars, i + 1, firsts, i, firsts.length - i);
+        System.arraycopy(node.children, i + 1, children, i, children.length - i);
+        node.firstChars = firsts;
+        node.children = children;
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int max = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] appendSlot(int[] slots, int slot) {
+        for (int s : slots) {
+            if (s == slot) {
+                return slots;
+            }
+        }
+        int[] copy = Arrays.copyOf(slots, slots.length + 1);
+        copy[slots.length] = slot;
+        return copy;
+    }
+
+    private static int[] removeSlot(int[] slots, int slot) {
+        return Arrays.stream(slots).filter(s -> s != slot).toArray();
+    }
+
+    // Rough retained size with compressed oops: headers + fields + arrays + label strings
+    private static void walk(Node node, long[] totals) {
+        totals[0]++;
+        totals[1] += node.label.length();
+        totals[2] += 32                                        // Node object
+                + 24 + 16 + node.label.length()                // String + byte[] (Latin-1)
+                + 16 + 2L * node.firstChars.length
+                + 16 + 4L * node.children.length
+                + (node.terminals.length == 0 ? 0 : 16 + 4L * node.terminals.length)
+                + (node.top.length == 0 ? 0 : 16 + 4L * node.top.length);
+        for (Node child : node.children) {
+            walk(child, totals);
+        }
+    }
+}
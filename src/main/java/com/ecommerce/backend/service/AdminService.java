@@ -1,5 +1,6 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.cache.CacheStats;
 import com.ecommerce.backend.entity.Admin;
 import java.util.Optional;
 
@@ -11,6 +12,14 @@ public interface AdminService {
 
     Optional<Admin> getAdminByUsername(String username);
 
+    // Cached for a short time: used by the JWT filter on every admin request
+    boolean adminExists(String username);
+
+    // Drop the cached existence of a username (after a rename or any admin change)
+    void evictAdmin(String username);
+
+    CacheStats adminCacheStats();
+
     // Validate if a given password matches the admin's password
     boolean validatePassword(Admin admin, String password);
 
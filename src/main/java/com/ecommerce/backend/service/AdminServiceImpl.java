@@ -1,10 +1,14 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.cache.BoundedTtlCache;
+import com.ecommerce.backend.cache.CacheStats;
 import com.ecommerce.backend.entity.Admin;
 import com.ecommerce.backend.repository.AdminRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
@@ -12,9 +16,14 @@ public class AdminServiceImpl implements AdminService {
 
     private final AdminRepository adminRepository;
 
+    // username -> exists; short TTL as a backstop, explicit eviction on updates
+    private final BoundedTtlCache<String, Boolean> adminExistence;
+
     @Autowired
-    public AdminServiceImpl(AdminRepository adminRepository) {
+    public AdminServiceImpl(AdminRepository adminRepository,
+                            @Value("${app.auth.admin-cache.ttl:PT1M}") Duration adminCacheTtl) {
         this.adminRepository = adminRepository;
+        this.adminExistence = new BoundedTtlCache<>("adminExistence", 1000, adminCacheTtl);
     }
 
     @Override
@@ -32,6 +41,23 @@ public class AdminServiceImpl implements AdminService {
         return adminRepository.findByUsername(username);
     }
 
+    @Override
+    public boolean adminExists(String username) {
+        return adminExistence.get(username, () -> adminRepository.findByUsername(username).isPresent());
+    }
+
+    @Override
+    public void evictAdmin(String username) {
+        if (username != null) {
+            adminExistence.invalidate(username);
+        }
+    }
+
+    @Override
+    public CacheStats adminCacheStats() {
+        return adminExistence.stats();
+    }
+
     @Override
     public boolean validatePassword(Admin admin, String password) {
         if (admin == null || password == null) return false;
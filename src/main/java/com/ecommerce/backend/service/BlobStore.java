@@ -0,0 +1,235 @@
+package com.ecommerce.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.config.ResilienceConfig;
+import com.ecommerce.backend.entity.StoredBlob;
+import com.ecommerce.backend.repository.StoredBlobRepository;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed store for uploads: files are identified by the SHA-256 of their bytes,
+ * computed while the upload streams in, so the same photo uploaded twice is stored
+ * (and processed, and sent to Cloudinary) once.
+ * Product/category saves keep StoredBlob.refCount up to date; blobs left unreferenced
+ * for longer than app.blobs.grace-period are deleted by the nightly sweep.
+ */
+@Service
+public class BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+    private static final int SWEEP_BATCH = 100;
+
+    public record Hashed(String sha256, long size) {
+    }
+
+    public record BlobStats(long stored, long deduplicated, long swept) {
+    }
+
+    private final StoredBlobRepository storedBlobRepository;
+    private final Cloudinary cloudinary;
+    private final DependencyGuard cloudinaryGuard;
+    private final String uploadDir;
+    private final Duration gracePeriod;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong swept = new AtomicLong();
+
+    public BlobStore(StoredBlobRepository storedBlobRepository,
+                     Cloudinary cloudinary,
+                     @Qualifier(ResilienceConfig.CLOUDINARY_GUARD) DependencyGuard cloudinaryGuard,
+                     @Value("${file.upload-dir:./uploads/}") String uploadDir,
+                     @Value("${app.blobs.grace-period:P1D}") Duration gracePeriod) {
+        this.storedBlobRepository = storedBlobRepository;
+        this.cloudinary = cloudinary;
+        this.cloudinaryGuard = cloudinaryGuard;
+        this.uploadDir = uploadDir;
+        this.gracePeriod = gracePeriod;
+    }
+
+    // Hashes the stream while copying it to target (one pass over the upload)
+    public static Hashed copyHashing(InputStream in, Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            return copyHashing(in, out);
+        }
+    }
+
+    public static Hashed hash(InputStream in) throws IOException {
+        return copyHashing(in, OutputStream.nullOutputStream());
+    }
+
+    private static Hashed copyHashing(InputStream in, OutputStream out) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream hashing = new DigestInputStream(in, digest)) {
+            size = hashing.transferTo(out);
+        }
+        return new Hashed(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /**
+     * The blob already stored for these bytes, if any. A hit counts as a re-upload:
+     * it restarts the grace period of an unreferenced blob so the sweep can't delete it
+     * before the caller gets to reference it.
+     */
+    public Optional<StoredBlob> find(String sha256, StoredBlob.Storage storage) {
+        Optional<StoredBlob> blob = storedBlobRepository.findBySha256AndStorage(sha256, storage);
+        blob.ifPresent(existing -> {
+            storedBlobRepository.touch(existing.getId(), Instant.now());
+            deduplicated.incrementAndGet();
+        });
+        return blob;
+    }
+
+    /**
+     * Records a newly stored blob (unreferenced until a product/category uses its URL).
+     * If the same bytes were registered concurrently, returns that blob instead.
+     */
+    public StoredBlob register(String sha256, StoredBlob.Storage storage, String url, long size,
+                               String remoteId, String resourceType) {
+        Optional<StoredBlob> existing = find(sha256, storage);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        StoredBlob blob = new StoredBlob();
+        blob.setSha256(sha256);
+        blob.setStorage(storage);
+        blob.setUrl(url);
+        blob.setSize(size);
+        blob.setRemoteId(remoteId);
+        blob.setResourceType(resourceType);
+        blob.setCreatedAt(Instant.now());
+        blob.setUnreferencedSince(blob.getCreatedAt());
+        try {
+            StoredBlob saved = storedBlobRepository.save(blob);
+            stored.incrementAndGet();
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            return storedBlobRepository.findBySha256AndStorage(sha256, storage).orElseThrow(() -> e);
+        }
+    }
+
+    // --- Reference counting (URLs that aren't blobs, e.g. legacy uploads, are ignored) ---
+
+    public void retain(Collection<String> urls) {
+        if (urls != null) {
+            urls.stream().filter(Objects::nonNull).forEach(storedBlobRepository::retain);
+        }
+    }
+
+    public void release(Collection<String> urls) {
+        if (urls != null) {
+            Instant now = Instant.now();
+            urls.stream().filter(Objects::nonNull).forEach(url -> storedBlobRepository.release(url, now));
+        }
+    }
+
+    // Only the difference is applied: an image kept across an edit is not touched
+    public void updateReferences(Collection<String> before, Collection<String> after) {
+        Map<String, Integer> delta = new HashMap<>();
+        if (after != null) {
+            after.stream().filter(Objects::nonNull).forEach(url -> delta.merge(url, 1, Integer::sum));
+        }
+        if (before != null) {
+            before.stream().filter(Objects::nonNull).forEach(url -> delta.merge(url, -1, Integer::sum));
+        }
+        List<String> retained = new ArrayList<>();
+        List<String> released = new ArrayList<>();
+        delta.forEach((url, change) -> {
+            for (int i = 0; i < Math.abs(change); i++) {
+                (change > 0 ? retained : released).add(url);
+            }
+        });
+        retain(retained);
+        release(released);
+    }
+
+    /**
+     * Deletes blobs (file + renditions, or Cloudinary asset) unreferenced for longer than the grace period.
+     * Each row is claimed with a conditional DELETE first, so a blob referenced in the meantime is kept.
+     */
+    @Scheduled(cron = "${app.blobs.sweep-cron:0 45 3 * * *}")
+    public int sweep() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        int deleted = 0;
+        List<StoredBlob> batch;
+        do {
+            batch = storedBlobRepository.findByRefCountAndUnreferencedSinceBeforeOrderByIdAsc(
+                    0, cutoff, Limit.of(SWEEP_BATCH));
+            for (StoredBlob blob : batch) {
+                if (storedBlobRepository.deleteUnreferenced(blob.getId(), cutoff) == 1) {
+                    deleteStored(blob);
+                    deleted++;
+                }
+            }
+        } while (batch.size() == SWEEP_BATCH);
+
+        if (deleted > 0) {
+            logger.info("Swept {} unreferenced blobs", deleted);
+            swept.addAndGet(deleted);
+        }
+        return deleted;
+    }
+
+    private void deleteStored(StoredBlob blob) {
+        try {
+            if (blob.getStorage() == StoredBlob.Storage.LOCAL) {
+                String filename = blob.getUrl().substring(blob.getUrl().lastIndexOf('/') + 1);
+                Path original = Path.of(uploadDir).resolve(filename);
+                Files.deleteIfExists(original);
+                for (int width : ImageRenditions.widths()) {
+                    Files.deleteIfExists(original.resolveSibling(ImageRenditions.localName(filename, width)));
+                }
+                ImageRenditions.refresh(filename);
+            } else {
+                cloudinaryGuard.call(() -> cloudinary.uploader().destroy(blob.getRemoteId(),
+                        ObjectUtils.asMap("resource_type", blob.getResourceType(), "invalidate", true)));
+            }
+        } catch (Exception e) {
+            // The row is gone; the leftover file/asset is only wasted space
+            logger.warn("Could not delete blob {} ({}): {}", blob.getSha256(), blob.getUrl(), e.getMessage());
+        }
+    }
+
+    public BlobStats stats() {
+        return new BlobStats(stored.get(), deduplicated.get(), swept.get());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
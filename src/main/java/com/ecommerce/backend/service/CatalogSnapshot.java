@@ -0,0 +1,125 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.service.CatalogVersionService.CatalogVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A catalog list rendered once to JSON, plus its gzip and deflate encodings.
+ * The arrays are never modified after construction and are written to the
+ * response as-is. (Brotli would need a native library, so deflate is the
+ * second encoding.)
+ */
+public final class CatalogSnapshot {
+
+    private final CatalogVersion version;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final byte[] deflate;
+
+    private CatalogSnapshot(CatalogVersion version, byte[] json, byte[] gzip, byte[] deflate) {
+        this.version = version;
+        this.json = json;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    // version must be read before the data is loaded, never after
+    public static CatalogSnapshot of(CatalogVersion version, byte[] json) {
+        return new CatalogSnapshot(version, json, gzip(json), deflate(json));
+    }
+
+    public int size() {
+        return json.length;
+    }
+
+    public ResponseEntity<byte[]> toResponse(String encoding) {
+        byte[] body = switch (encoding) {
+            case "gzip" -> gzip;
+            case "deflate" -> deflate;
+            default -> json;
+        };
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .eTag(version.etag(encoding))
+                .lastModified(version.lastModified())
+                // Always revalidate: a 304 costs a few bytes and no DB access
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!encoding.equals("identity")) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return builder.body(body);
+    }
+
+    // Prefer gzip (smallest for JSON and universally supported), then deflate. A coding named
+    // explicitly wins over "*", so "gzip;q=0, *" never gets gzip.
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return "identity";
+        }
+        Boolean gzip = null;
+        Boolean deflate = null;
+        boolean anyAccepted = false;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < tokens.length; i++) {
+                if (tokens[i].trim().matches("q\\s*=\\s*0(\\.0*)?")) {
+                    accepted = false;
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = accepted;
+                case "deflate" -> deflate = accepted;
+                case "*" -> anyAccepted = accepted;
+                default -> {
+                }
+            }
+        }
+        if (gzip != null ? gzip : anyAccepted) {
+            return "gzip";
+        }
+        return (deflate != null ? deflate : anyAccepted) ? "deflate" : "identity";
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream df = new DeflaterOutputStream(out, deflater)) {
+            df.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,112 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the public product and category lists as pre-rendered, pre-compressed bytes.
+ * A catalog change drops the snapshot; the next reader renders it once and every
+ * following request just copies the bytes to the socket.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final JsonMapper jsonMapper;
+    private final CatalogVersionService catalogVersionService;
+
+    private final Slot products = new Slot("products");
+    private final Slot categories = new Slot("categories");
+
+    public CatalogSnapshotService(ProductRepository productRepository,
+                                  CategoryRepository categoryRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  JsonMapper jsonMapper,
+                                  CatalogVersionService catalogVersionService) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTx.setReadOnly(true);
+        this.jsonMapper = jsonMapper;
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    public CatalogSnapshot products() {
+        return products.get(() -> jsonMapper.writeValueAsBytes(productRepository.findAll()));
+    }
+
+    public CatalogSnapshot categories() {
+        return categories.get(() -> jsonMapper.writeValueAsBytes(categoryRepository.findAll()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.type()) {
+            case PRODUCT -> products.invalidate();
+            case CATEGORY -> categories.invalidate();
+        }
+    }
+
+    /**
+     * Holds one snapshot. Rendering is single-flight: concurrent readers of a
+     * stale slot wait for the first one instead of all hitting the DB.
+     */
+    private final class Slot {
+
+        private final String name;
+        private final ReentrantLock renderLock = new ReentrantLock();
+        private final AtomicLong generation = new AtomicLong();
+        private volatile CatalogSnapshot current;
+
+        Slot(String name) {
+            this.name = name;
+        }
+
+        CatalogSnapshot get(Supplier<byte[]> renderer) {
+            CatalogSnapshot snapshot = current;
+            if (snapshot != null) {
+                return snapshot;
+            }
+            renderLock.lock();
+            try {
+                snapshot = current;
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                long renderGeneration = generation.get();
+                CatalogVersionService.CatalogVersion version = catalogVersionService.current();
+                long start = System.nanoTime();
+                snapshot = CatalogSnapshot.of(version, readOnlyTx.execute(status -> renderer.get()));
+                // A write committed while we were rendering: serve it, but don't keep it
+                if (generation.get() == renderGeneration) {
+                    current = snapshot;
+                }
+                logger.info("Rendered {} snapshot: {} bytes in {} ms",
+                        name, snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+                return snapshot;
+            } finally {
+                renderLock.unlock();
+            }
+        }
+
+        void invalidate() {
+            generation.incrementAndGet();
+            current = null;
+        }
+    }
+}
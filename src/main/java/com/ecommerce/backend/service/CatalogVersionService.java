@@ -0,0 +1,52 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Global catalog version, bumped after every committed product or category write.
+ * It seeds from the wall clock so it keeps increasing across restarts, and is
+ * the source of the ETag / Last-Modified headers of the public catalog GETs.
+ */
+@Service
+public class CatalogVersionService {
+
+    public record CatalogVersion(long version, Instant lastModified) {
+
+        // Strong ETag; the variant keeps gzip / deflate / identity bodies distinct
+        public String etag(String variant) {
+            return "\"" + version + (variant == null || variant.equals("identity") ? "" : "-" + variant) + "\"";
+        }
+
+        public long lastModifiedMillis() {
+            return lastModified.toEpochMilli();
+        }
+    }
+
+    private final AtomicReference<CatalogVersion> current;
+
+    public CatalogVersionService() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        this.current = new AtomicReference<>(new CatalogVersion(System.currentTimeMillis(), now));
+    }
+
+    public CatalogVersion current() {
+        return current.get();
+    }
+
+    // Runs before the caches/snapshots drop their entries, so a re-rendered
+    // snapshot can never be tagged with the version that precedes its content.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        current.updateAndGet(v -> new CatalogVersion(Math.max(v.version() + 1, System.currentTimeMillis()), now));
+    }
+}
@@ -1,11 +1,18 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.dto.ChangeSet;
 import com.ecommerce.backend.entity.Category;
+import com.ecommerce.backend.event.CatalogChangedEvent;
 import com.ecommerce.backend.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 
 @Service
 public class CategoryService {
@@ -16,6 +23,13 @@ public class CategoryService {
     @Autowired
     private CloudinaryService cloudinaryService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BlobStore blobStore;
+
+
     public Category createCategory(String name, MultipartFile imageFile) throws IOException {
         Category category = new Category();
         category.setName(name);
@@ -25,7 +39,10 @@ public class CategoryService {
             String imageUrl = cloudinaryService.uploadImage(imageFile, "categories");
             category.setImage(imageUrl);
         }
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        blobStore.retain(Collections.singletonList(saved.getImage()));
+        eventPublisher.publishEvent(CatalogChangedEvent.categorySaved(saved.getId()));
+        return saved;
     }
 
     public Category updateCategory(Long id, String name, MultipartFile imageFile) throws IOException {
@@ -34,15 +51,38 @@ public class CategoryService {
 
         category.setName(name);
 
+        String previousImage = category.getImage();
         if (imageFile != null && !imageFile.isEmpty()) {
             String imageUrl = cloudinaryService.uploadImage(imageFile, "categories");
             category.setImage(imageUrl);
         }
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        blobStore.updateReferences(Collections.singletonList(previousImage), Collections.singletonList(saved.getImage()));
+        eventPublisher.publishEvent(CatalogChangedEvent.categorySaved(saved.getId()));
+        return saved;
     }
 
+    @Transactional
     public void deleteCategory(Long id) {
-        // Simply delete from DB. Cloudinary cleanup is optional.
-        categoryRepository.deleteById(id);
+        categoryRepository.findById(id)
+                .ifPresent(category -> blobStore.release(Collections.singletonList(category.getImage())));
+        // Soft delete: the tombstone is what /changes reports. The image is deleted later
+        // by the blob sweep (or OrphanReconciler for untracked uploads).
+        categoryRepository.softDelete(id, Instant.now());
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryDeleted(id));
+    }
+
+    // since == null means a full sync
+    @Transactional(readOnly = true)
+    public ChangeSet<Category> getChangesSince(Instant since) {
+        Instant queriedAt = Instant.now();
+        if (since == null) {
+            return new ChangeSet<>(categoryRepository.findAll(), List.of(), ChangeSet.nextSince(null, queriedAt));
+        }
+        return new ChangeSet<>(
+                categoryRepository.findByUpdatedAtAfterOrderByUpdatedAtAsc(since),
+                categoryRepository.findDeletedIdsSince(since),
+                ChangeSet.nextSince(since, queriedAt)
+        );
     }
 }
\ No newline at end of file
@@ -2,28 +2,154 @@ package com.ecommerce.backend.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.ecommerce.backend.config.AsyncConfig;
+import com.ecommerce.backend.config.ResilienceConfig;
+import com.ecommerce.backend.entity.StoredBlob;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import com.ecommerce.backend.resilience.DependencyUnavailableException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class CloudinaryService {
 
+    public static final int MAX_BATCH = 20;
+
     @Autowired
     private Cloudinary cloudinary;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    @Qualifier(AsyncConfig.UPLOAD_EXECUTOR)
+    private Executor uploadExecutor;
+
+    @Autowired
+    @Qualifier(ResilienceConfig.CLOUDINARY_UPLOAD_GUARD)
+    private DependencyGuard uploadGuard;
+
+    // Slowest upload throughput we wait for: a file's share of the timeout is its size at this rate
+    @Value("${app.resilience.cloudinary-upload.min-throughput:256KB}")
+    private DataSize minUploadThroughput = DataSize.ofKilobytes(256);
+
     public String uploadImage(MultipartFile file, String folder) throws IOException {
-        // FIX: Switch back to getBytes() to fix the "Unrecognized file parameter" error
-        Map<?, ?> uploadResult = cloudinary.uploader().upload(
-                file.getBytes(),
-                ObjectUtils.asMap(
-                        "folder", folder,
-                        "resource_type", "auto"
-                )
-        );
-        return uploadResult.get("secure_url").toString();
+        // Streamed from disk, never loaded into a byte[]: the part is moved to a temp file
+        // (a rename when Tomcat already spooled it) and the Cloudinary client sends the File
+        // in chunks. (It only accepts File, byte[] or a URL, not an InputStream.)
+        Path tempFile = Files.createTempFile("cloudinary-", ".upload");
+        try {
+            file.transferTo(tempFile);
+
+            // Content-addressed: the same bytes are only ever uploaded once (see BlobStore)
+            BlobStore.Hashed hashed;
+            try (InputStream in = Files.newInputStream(tempFile)) {
+                hashed = BlobStore.hash(in);
+            }
+            Optional<StoredBlob> existing = blobStore.find(hashed.sha256(), StoredBlob.Storage.CLOUDINARY);
+            if (existing.isPresent()) {
+                return existing.get().getUrl();
+            }
+
+            Map<?, ?> uploadResult;
+            try {
+                uploadResult = uploadGuard.call(() -> cloudinary.uploader().upload(
+                        tempFile.toFile(),
+                        ObjectUtils.asMap(
+                                "folder", folder,
+                                "public_id", hashed.sha256(),
+                                "resource_type", "auto"
+                        )
+                ), transferTime(hashed.size()));
+            } catch (DependencyUnavailableException e) {
+                // Slow or failing Cloudinary: answer now instead of holding the request thread
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Image storage is unavailable, please retry", e);
+            }
+            // A concurrent upload of the same bytes may have registered first: everyone uses that one
+            return blobStore.register(hashed.sha256(), StoredBlob.Storage.CLOUDINARY,
+                    uploadResult.get("secure_url").toString(), hashed.size(),
+                    uploadResult.get("public_id").toString(), uploadResult.get("resource_type").toString()).getUrl();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Uploads several images in parallel on the upload executor and returns their URLs in the same order.
+     * The request thread only waits for the slowest upload instead of the sum of all of them.
+     * If one fails the whole batch fails; the ones already uploaded are unreferenced blobs
+     * (reused if retried, swept otherwise).
+     */
+    public List<String> uploadImages(List<MultipartFile> files, String folder) throws IOException {
+        if (files == null || files.isEmpty() || files.size() > MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Send between 1 and " + MAX_BATCH + " files");
+        }
+        if (folder == null || !folder.matches("[a-zA-Z0-9_-]+")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid folder");
+        }
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                uploads.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return uploadImage(file, folder);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, uploadExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            // Let the accepted ones finish: their multipart files disappear when the request ends
+            awaitQuietly(uploads);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Uploads are busy, please retry");
+        }
+
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // allOf only completes once every upload has finished
+            switch (e.getCause()) {
+                case UncheckedIOException io -> throw io.getCause();
+                case RuntimeException runtime -> throw runtime;
+                default -> throw e;
+            }
+        }
+        return uploads.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static void awaitQuietly(List<CompletableFuture<String>> uploads) {
+        for (CompletableFuture<String> upload : uploads) {
+            try {
+                upload.join();
+            } catch (CompletionException ignored) {
+                // reported by the caller
+            }
+        }
+    }
+
+    private Duration transferTime(long bytes) {
+        return Duration.ofMillis(bytes * 1000 / Math.max(1, minUploadThroughput.toBytes()));
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,17 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.entity.OutboxMessage;
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+// Builds the admin emails; sending (batching, retries) is done by OutboxDispatcher
 @Service
 public class EmailService {
 
@@ -20,44 +24,64 @@ public class EmailService {
     @Value("${admin.email.to}")
     private String adminEmail;
 
-    @Async
-    public void sendOrderNotification(String customerName, double totalAmount, Long orderId) {
-        // This log will appear in Render to show the thread started
-        System.out.println("DEBUG: Starting Async email process for Order #" + orderId);
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            // Using your verified sender from the Brevo screenshot
-            helper.setFrom(fromEmail);
-            helper.setTo(adminEmail);
-            helper.setSubject("📦 New Order Received! #" + orderId);
-
-            String htmlContent =
-                    "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: auto; border: 1px solid #e0e0e0; padding: 20px; border-radius: 10px;'>" +
-                            "   <h2 style='color: #4F46E5; text-align: center;'>New Order Alert!</h2>" +
-                            "   <p style='font-size: 16px;'>Hello Admin,</p>" +
-                            "   <div style='background-color: #f9fafb; padding: 15px; border-radius: 8px; margin: 20px 0;'>" +
-                            "       <p><strong>Order ID:</strong> #" + orderId + "</p>" +
-                            "       <p><strong>Customer:</strong> " + customerName + "</p>" +
-                            "       <p style='font-size: 18px; color: #059669;'><strong>Total Amount: " + totalAmount + " DH</strong></p>" +
-                            "   </div>" +
-                            "   <p style='text-align: center; margin-top: 30px;'>" +
-                            "       <a href='https://eccomstandard.vercel.app/dashboard' style='background-color: #4F46E5; color: white; padding: 12px 25px; text-decoration: none; border-radius: 5px; font-weight: bold;'>Open Admin Panel</a>" +
-                            "   </p>" +
-                            "</div>";
-
-            helper.setText(htmlContent, true);
-
-            System.out.println("DEBUG: Sending email via Brevo...");
-            mailSender.send(message);
-            System.out.println("✅ SUCCESS: Order Email sent to Admin!");
-
-        } catch (Exception e) {
-            // This will capture the exact reason for the failure on Render
-            System.err.println("❌ RENDER EMAIL ERROR: " + e.getMessage());
-            e.printStackTrace();
+    public MimeMessage orderNotification(OutboxMessage order) throws MessagingException {
+        String htmlContent =
+                "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: auto; border: 1px solid #e0e0e0; padding: 20px; border-radius: 10px;'>" +
+                        "   <h2 style='color: #4F46E5; text-align: center;'>New Order Alert!</h2>" +
+                        "   <p style='font-size: 16px;'>Hello Admin,</p>" +
+                        "   <div style='background-color: #f9fafb; padding: 15px; border-radius: 8px; margin: 20px 0;'>" +
+                        "       <p><strong>Order ID:</strong> #" + order.getOrderId() + "</p>" +
+                        "       <p><strong>Customer:</strong> " + order.getCustomerName() + "</p>" +
+                        "       <p style='font-size: 18px; color: #059669;'><strong>Total Amount: " + order.getTotalAmount() + " DH</strong></p>" +
+                        "   </div>" +
+                        adminPanelButton() +
+                        "</div>";
+
+        return adminMessage("📦 New Order Received! #" + order.getOrderId(), htmlContent);
+    }
+
+    // One email for a burst of orders (see app.outbox.digest-threshold)
+    public MimeMessage orderDigest(List<OutboxMessage> orders) throws MessagingException {
+        double total = orders.stream()
+                .mapToDouble(o -> o.getTotalAmount() == null ? 0 : o.getTotalAmount())
+                .sum();
+
+        StringBuilder rows = new StringBuilder();
+        for (OutboxMessage order : orders) {
+            rows.append("<tr><td style='padding: 6px;'>#").append(order.getOrderId()).append("</td>")
+                    .append("<td style='padding: 6px;'>").append(order.getCustomerName()).append("</td>")
+                    .append("<td style='padding: 6px; text-align: right;'>").append(order.getTotalAmount()).append(" DH</td></tr>");
         }
+
+        String htmlContent =
+                "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: auto; border: 1px solid #e0e0e0; padding: 20px; border-radius: 10px;'>" +
+                        "   <h2 style='color: #4F46E5; text-align: center;'>" + orders.size() + " New Orders!</h2>" +
+                        "   <p style='font-size: 16px;'>Hello Admin,</p>" +
+                        "   <div style='background-color: #f9fafb; padding: 15px; border-radius: 8px; margin: 20px 0;'>" +
+                        "       <table style='width: 100%; border-collapse: collapse;'>" + rows + "</table>" +
+                        "       <p style='font-size: 18px; color: #059669;'><strong>Total Amount: " + Math.round(total * 100) / 100.0 + " DH</strong></p>" +
+                        "   </div>" +
+                        adminPanelButton() +
+                        "</div>";
+
+        return adminMessage("📦 " + orders.size() + " New Orders Received!", htmlContent);
+    }
+
+    private MimeMessage adminMessage(String subject, String htmlContent) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        // Using your verified sender from the Brevo screenshot
+        helper.setFrom(fromEmail);
+        helper.setTo(adminEmail);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
+    private static String adminPanelButton() {
+        return "   <p style='text-align: center; margin-top: 30px;'>" +
+                "       <a href='https://eccomstandard.vercel.app/dashboard' style='background-color: #4F46E5; color: white; padding: 12px 25px; text-decoration: none; border-radius: 5px; font-weight: bold;'>Open Admin Panel</a>" +
+                "   </p>";
     }
-}
\ No newline at end of file
+}
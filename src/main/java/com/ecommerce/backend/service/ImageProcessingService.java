@@ -1,27 +1,106 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.cache.BoundedTtlCache;
+import com.ecommerce.backend.config.AsyncConfig;
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.entity.StoredBlob;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.ProductRepository;
 import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value; // 🎯 NEW: Import Value for config injection
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger; // 🎯 CRITICAL: Import Logger
 import org.slf4j.LoggerFactory; // 🎯 CRITICAL: Import LoggerFactory
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Saves uploads and optimizes them in the background on the image executor.
+ * A job decodes the upload once, then renders the optimized original and every rendition width
+ * (ImageRenditions, "name_w320.jpg") in parallel on the rendition fork-join pool.
+ * Each output is written to a temp file next to its target and renamed over it atomically,
+ * so /uploads/** always serves a complete file.
+ * At most one job per file is queued or running; a full executor answers 503.
+ * Uploads are content-addressed ("sha256.jpg", see BlobStore): re-uploading the same bytes
+ * returns the existing file without storing or processing it again.
+ * When a job finishes, the products and categories showing the image are stamped and announced
+ * (CatalogChangedEvent), so snapshots, page caches and delta sync pick up the new renditions.
+ */
 @Service
 public class ImageProcessingService {
 
     // --- CRITICAL: Logger Instance ---
     private static final Logger logger = LoggerFactory.getLogger(ImageProcessingService.class);
 
+    public enum JobStatus {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    public record ImageJob(String filename, String url, int targetWidth, JobStatus status,
+                           Instant queuedAt, Instant finishedAt, String error, Map<Integer, String> renditions) {
+
+        ImageJob with(JobStatus newStatus, String newError) {
+            Instant finished = newStatus == JobStatus.DONE || newStatus == JobStatus.FAILED ? Instant.now() : null;
+            return new ImageJob(filename, url, targetWidth, newStatus, queuedAt, finished, newError, renditions);
+        }
+    }
+
     // --- CRITICAL: Use injected value for UPLOAD_DIR (Recommended for Production) ---
     @Value("${file.upload-dir:./uploads/}") // Use application.properties or application.yml
     private String configuredUploadDir;
 
+    private final Executor imageExecutor;
+    private final ForkJoinPool renditionPool;
+    private final BlobStore blobStore;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Queued/running jobs, one per file; finished ones stay queryable for an hour
+    private final Map<String, ImageJob> activeJobs = new ConcurrentHashMap<>();
+    private final BoundedTtlCache<String, ImageJob> finishedJobs =
+            new BoundedTtlCache<>("imageJobs", 10_000, Duration.ofHours(1));
+
+    public ImageProcessingService(@Qualifier(AsyncConfig.IMAGE_EXECUTOR) Executor imageExecutor,
+                                  @Qualifier(AsyncConfig.IMAGE_RENDITION_POOL) ForkJoinPool renditionPool,
+                                  BlobStore blobStore,
+                                  ProductRepository productRepository,
+                                  CategoryRepository categoryRepository,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.imageExecutor = imageExecutor;
+        this.renditionPool = renditionPool;
+        this.blobStore = blobStore;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
     // --- Helper to ensure the directory exists ---
     private void ensureUploadDir() {
         // Use the configured path
@@ -38,70 +117,218 @@ public class ImageProcessingService {
     }
 
     /**
-     * Executes the initial file save (fast) and immediately delegates the slow optimization
-     * to a background thread. Returns the file path instantly.
+     * Executes the initial file save (fast) and queues the slow optimization
+     * on the image executor. Returns the job (with the public URL) instantly.
      * @param targetWidth The desired max width for the optimized image.
      */
-    public String saveAndDelegateOptimization(MultipartFile file, int targetWidth) throws IOException {
+    public ImageJob saveAndDelegateOptimization(MultipartFile file, int targetWidth) throws IOException {
 
         ensureUploadDir();
         if (file == null || file.isEmpty()) {
             logger.warn("Attempted to save a null or empty file.");
-            return null;
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File is empty");
         }
 
-        String originalFilename = file.getOriginalFilename();
+        // 1. Stream the upload to a temp file, hashing it on the way (FAST OPERATION)
+        Path tempFile = Files.createTempFile(Path.of(configuredUploadDir), ".upload-", ".tmp");
+        BlobStore.Hashed hashed;
+        try (InputStream in = file.getInputStream()) {
+            hashed = BlobStore.copyHashing(in, tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        // 2. The content hash is the file name (e.g. /uploads/9f86d0...c2.jpg)
+        String filename = hashed.sha256() + extensionOf(file.getOriginalFilename());
+        Path finalImageFile = resolve(filename);
+        String url = "/uploads/" + filename;
+        blobStore.register(hashed.sha256(), StoredBlob.Storage.LOCAL, url, hashed.size(), null, null);
+
+        if (Files.exists(finalImageFile)) {
+            // Same bytes uploaded before: reuse that file (and its renditions / running job)
+            Files.deleteIfExists(tempFile);
+            logger.info("Duplicate upload of {}, reusing it", filename);
+            ImageJob active = activeJobs.get(filename);
+            if (active != null) {
+                return active;
+            }
+            Map<Integer, String> renditions = ImageRenditions.forUrl(url);
+            if (renditions.isEmpty() && finishedJobs.get(filename) == null) {
+                // Never optimized (an earlier upload was turned away with 503): queue it now
+                return submit(filename, targetWidth);
+            }
+            Instant now = Instant.now();
+            return new ImageJob(filename, url, targetWidth, JobStatus.DONE, now, now, null, renditions);
+        }
 
-        // Sanitize the filename
-        String sanitizedOriginal = originalFilename != null ? originalFilename
-                .replaceAll("\\s+", "_")
-                .replaceAll("[^a-zA-Z0-9_.-]", "")
-                : "untitled_file";
+        // 3. The RAW, unoptimized file is served as-is until the optimized version replaces it.
+        logger.info("Saving raw file to: {}", finalImageFile);
+        Files.move(tempFile, finalImageFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
 
-        // 1. Generate the final file path (e.g., /uploads/unique_name.jpg)
-        String filename = UUID.randomUUID() + "_" + sanitizedOriginal;
-        File finalImageFile = new File(configuredUploadDir, filename);
+        // 4. Queue the slow resizing. If the queue is full the raw file stays: a concurrent upload of the
+        // same bytes may already be using it, a retry queues it, and otherwise the sweep deletes it
+        // (registered above, never referenced).
+        return submit(filename, targetWidth);
+    }
 
-        // 2. Save the RAW, unoptimized file content to the final path (FAST OPERATION).
-        // This is necessary so the background thread has a file to read/overwrite.
-        logger.info("Saving raw file to: {}", finalImageFile.getAbsolutePath());
-        file.transferTo(finalImageFile);
+    /**
+     * Re-optimizes an already uploaded file. If a job for it is already queued or running,
+     * that job is returned instead of starting another one.
+     */
+    public ImageJob optimize(String filename, int targetWidth) {
+        if (!Files.isRegularFile(resolve(filename))) {
+            throw new RuntimeException("Upload not found");
+        }
+        return submit(filename, targetWidth);
+    }
 
-        // 3. Kick off the slow resizing process in the background.
-        optimizeImageInSeparateThread(finalImageFile, targetWidth);
+    public ImageJob status(String filename) {
+        ImageJob job = activeJobs.get(filename);
+        if (job == null) {
+            job = finishedJobs.get(filename);
+        }
+        if (job == null) {
+            throw new RuntimeException("Upload not found");
+        }
+        return job;
+    }
 
-        // 4. Return the public URL path INSTANTLY.
-        // NOTE: The relative URL must match what your web server is configured to serve static content from.
-        return "/uploads/" + filename;
+    private ImageJob submit(String filename, int targetWidth) {
+        String url = "/uploads/" + filename;
+        ImageJob queued = new ImageJob(filename, url, targetWidth, JobStatus.QUEUED,
+                Instant.now(), null, null, ImageRenditions.planned(url));
+        ImageJob existing = activeJobs.putIfAbsent(filename, queued);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            imageExecutor.execute(() -> optimizeImage(filename, targetWidth));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(filename, queued);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Image processing is busy, please retry");
+        }
+        return queued;
     }
 
     /**
-     * The slow, CPU-intensive image resizing operation.
-     * Runs in a separate thread because of @Async.
+     * The slow, CPU-intensive image resizing operation (runs on the image executor).
      */
-    @Async
-    public void optimizeImageInSeparateThread(File imageFile, int targetWidth) {
+    private void optimizeImage(String filename, int targetWidth) {
+        activeJobs.computeIfPresent(filename, (name, job) -> job.with(JobStatus.RUNNING, null));
+        Path imageFile = resolve(filename);
         // Log start of slow operation
-        logger.info("Starting async optimization for: {} to width {}", imageFile.getName(), targetWidth);
+        logger.info("Starting async optimization for: {} to width {}", filename, targetWidth);
 
+        ImageJob result;
         try {
-            // Check existence before processing
-            if (imageFile.exists()) {
-                // Overwrite the file at the same path with the optimized version
-                Thumbnails.of(imageFile)
-                        .width(targetWidth)
-                        .outputQuality(0.8) // 80% quality for smaller size
-                        .toFile(imageFile); // Overwrites the file!
+            // Decode once; every output below is scaled from this same bitmap
+            BufferedImage source = ImageIO.read(imageFile.toFile());
+            if (source == null) {
+                throw new IOException("Unsupported image format");
+            }
+            String format = formatOf(filename);
 
-                // Log success
-                logger.info("Successfully optimized image: {}", imageFile.getName());
-            } else {
-                // Log a missing file error
-                logger.warn("Cannot optimize image. File not found at path: {}", imageFile.getAbsolutePath());
+            List<ForkJoinTask<Void>> outputs = new ArrayList<>();
+            outputs.add(ForkJoinTask.adapt(() -> writeScaled(source, targetWidth, imageFile, format), null));
+            for (int width : ImageRenditions.widths()) {
+                Path rendition = imageFile.resolveSibling(ImageRenditions.localName(filename, width));
+                outputs.add(ForkJoinTask.adapt(() -> writeScaled(source, width, rendition, format), null));
+            }
+            outputs.forEach(renditionPool::execute);
+            for (ForkJoinTask<Void> output : outputs) {
+                output.join();
+            }
+
+            // Log success
+            logger.info("Successfully optimized image: {} ({} renditions)", filename, outputs.size() - 1);
+            result = activeJobs.get(filename).with(JobStatus.DONE, null);
+        } catch (IOException | RuntimeException e) {
+            // Log the exception in detail; the original file is left untouched
+            logger.error("Async Error optimizing image: {}", filename, e);
+            result = activeJobs.get(filename).with(JobStatus.FAILED, e.getMessage());
+        }
+        // Before the job reads as finished: a client polling it then sees the renditions in the catalog
+        ImageRenditions.refresh(filename);
+        announceRenditions(result.url());
+        finishedJobs.put(filename, result);
+        activeJobs.remove(filename);
+    }
+
+    // A product saved right after the upload was rendered into the caches without its renditions
+    private void announceRenditions(String url) {
+        try {
+            Instant now = Instant.now();
+            List<Long> products = productRepository.findIdsByImage(url);
+            if (!products.isEmpty()) {
+                productRepository.touch(products, now);
+                products.forEach(id -> eventPublisher.publishEvent(CatalogChangedEvent.productSaved(id)));
+            }
+            List<Long> categories = categoryRepository.findIdsByImage(url);
+            if (!categories.isEmpty()) {
+                categoryRepository.touch(categories, now);
+                categories.forEach(id -> eventPublisher.publishEvent(CatalogChangedEvent.categorySaved(id)));
+            }
+        } catch (RuntimeException e) {
+            // The renditions are on disk; the caches catch up on the next catalog write
+            logger.warn("Could not announce renditions of {}: {}", url, e.getMessage());
+        }
+    }
+
+    // Scaled copy (never upscaled) written via temp file + atomic rename
+    private static void writeScaled(BufferedImage source, int width, Path target, String format) {
+        Path tempFile = null;
+        try {
+            // Same directory as the target, so the rename below is a same-filesystem atomic move
+            tempFile = Files.createTempFile(target.getParent(), ".optimizing-", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                Thumbnails.of(source)
+                        .width(Math.min(width, source.getWidth()))
+                        .outputQuality(0.8) // 80% quality for smaller size
+                        .outputFormat(format)
+                        .toOutputStream(out);
             }
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path resolve(String filename) {
+        if (filename == null || !filename.matches("[a-zA-Z0-9_.-]+") || filename.startsWith(".")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid file name");
+        }
+        return Path.of(configuredUploadDir).resolve(filename).toAbsolutePath();
+    }
+
+    // ".jpg" from "My Photo.JPG"; "" when there is no usable extension
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,5}") ? "." + extension : "";
+    }
+
+    private static String formatOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return switch (extension) {
+            case "png", "gif", "bmp" -> extension;
+            default -> "jpg";
+        };
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
         } catch (IOException e) {
-            // Log the exception in detail
-            logger.error("Async Error optimizing image: {}", imageFile.getName(), e);
+            logger.warn("Could not delete temp file {}", path);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.OrderExportRow;
+import com.ecommerce.backend.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders to the accounting export without loading them all:
+ * rows come from a DB cursor and are written (and flushed) as they arrive,
+ * so memory use doesn't depend on the size of the order history.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final int FLUSH_EVERY_ORDERS = 500;
+
+    private static final String CSV_HEADER = "order_id,date,status,customer_name,customer_email,customer_phone,"
+            + "customer_address,city,total_amount,item_product_id,item_name,item_price,item_quantity\n";
+
+    private final OrderRepository orderRepository;
+    private final JsonMapper jsonMapper;
+
+    public OrderExportService(OrderRepository orderRepository, JsonMapper jsonMapper) {
+        this.orderRepository = orderRepository;
+        this.jsonMapper = jsonMapper;
+    }
+
+    // One NDJSON line: an order with its items
+    record ExportedOrder(Long id, LocalDateTime date, String status, String customerName, String customerEmail,
+                         String customerPhone, String customerAddress, String city, Double totalAmount,
+                         List<ExportedItem> items) {
+    }
+
+    record ExportedItem(Long productId, String name, Double price, Integer quantity) {
+    }
+
+    @Transactional(readOnly = true)
+    public void export(Format format, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(from, to)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Iterator<OrderExportRow> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        Long lastOrderId = null;
+        int orders = 0;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (!row.orderId().equals(lastOrderId)) {
+                lastOrderId = row.orderId();
+                if (++orders % FLUSH_EVERY_ORDERS == 0) {
+                    writer.flush();
+                }
+            }
+            writer.write(row.orderId() + "," + csv(row.date()) + "," + csv(row.status()) + ","
+                    + csv(row.customerName()) + "," + csv(row.customerEmail()) + "," + csv(row.customerPhone()) + ","
+                    + csv(row.customerAddress()) + "," + csv(row.city()) + "," + csv(row.totalAmount()) + ","
+                    + csv(row.itemProductId()) + "," + csv(row.itemName()) + ","
+                    + csv(row.itemPrice()) + "," + csv(row.itemQuantity()) + "\n");
+        }
+    }
+
+    // Rows are ordered by order id, so an order is complete when the id changes
+    private void writeNdjson(Iterator<OrderExportRow> rows, Writer writer) throws IOException {
+        OrderExportRow head = null;
+        List<ExportedItem> items = new ArrayList<>();
+        int orders = 0;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (head != null && !row.orderId().equals(head.orderId())) {
+                writeOrderLine(head, items, writer);
+                items = new ArrayList<>();
+                if (++orders % FLUSH_EVERY_ORDERS == 0) {
+                    writer.flush();
+                }
+            }
+            head = row;
+            if (row.itemName() != null || row.itemQuantity() != null) {
+                items.add(new ExportedItem(row.itemProductId(), row.itemName(), row.itemPrice(), row.itemQuantity()));
+            }
+        }
+        if (head != null) {
+            writeOrderLine(head, items, writer);
+        }
+    }
+
+    private void writeOrderLine(OrderExportRow head, List<ExportedItem> items, Writer writer) throws IOException {
+        ExportedOrder order = new ExportedOrder(head.orderId(), head.date(), head.status(), head.customerName(),
+                head.customerEmail(), head.customerPhone(), head.customerAddress(), head.city(), head.totalAmount(), items);
+        writer.write(jsonMapper.writeValueAsString(order));
+        writer.write('\n');
+    }
+
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Names and addresses are typed by customers: a leading =, +, - or @ would run as a formula
+        // in a spreadsheet, so such text cells are quoted with a leading apostrophe (numbers are left alone)
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,302 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OutboxMessage;
+import com.ecommerce.backend.metrics.LatencyRecorder;
+import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.OutboxMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Writes new orders to the database.
+ * <p>
+ * By default every order is its own transaction. With app.orders.group-commit.enabled=true
+ * orders are queued and a single writer thread commits them in groups of up to max-batch orders,
+ * waiting at most max-wait for a group to fill: a flash sale then costs one connection and one
+ * commit per group instead of one per request. Each caller still blocks until its own order is
+ * committed (or failed), so the HTTP contract is unchanged. A full queue is answered with 429.
+ * Stock is reserved in the same transaction as the order (StockService); an order that is out
+ * of stock leaves its group with a 409 while the rest of the group commits. The admin notification
+ * is written to the outbox in the same transaction (OutboxDispatcher sends it).
+ * <p>
+ * A caller that gives up after commit-timeout withdraws its order if the writer has not picked it up
+ * yet (503, nothing was saved, safe to retry); once the writer has it, the caller waits for the outcome.
+ */
+@Service
+public class OrderIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    public record IntakeStats(boolean groupCommit, int queueDepth, int queueCapacity,
+                              long batches, long orders, double meanBatchSize, long maxBatchSize,
+                              long rejected, LatencyRecorder.Snapshot commits) {
+    }
+
+    private record Pending(Order order, CompletableFuture<Order> result, AtomicBoolean claimed) {
+
+        Pending(Order order) {
+            this(order, new CompletableFuture<>(), new AtomicBoolean());
+        }
+
+        // Whoever claims first decides: the writer commits the order, or its caller withdraws it
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private final OrderRepository orderRepository;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean groupCommit;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final Duration commitTimeout;
+    private final BlockingQueue<Pending> queue;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong committedOrders = new AtomicLong();
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyRecorder commitLatency = new LatencyRecorder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderIntakeService(OrderRepository orderRepository,
+                              OutboxMessageRepository outboxMessageRepository,
+                              StockService stockService,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${app.orders.group-commit.enabled:false}") boolean groupCommit,
+                              @Value("${app.orders.group-commit.queue-capacity:1000}") int queueCapacity,
+                              @Value("${app.orders.group-commit.max-batch:50}") int maxBatch,
+                              @Value("${app.orders.group-commit.max-wait:PT0.01S}") Duration maxWait,
+                              @Value("${app.orders.group-commit.commit-timeout:PT10S}") Duration commitTimeout) {
+        this.orderRepository = orderRepository;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.stockService = stockService;
+        this.transactionTemplate = transactionTemplate;
+        this.groupCommit = groupCommit;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.commitTimeout = commitTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!groupCommit) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("order-writer").daemon().start(this::writeLoop);
+        logger.info("Order group commit enabled: up to {} orders / {} ms per transaction, queue of {}",
+                maxBatch, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos), queue.remainingCapacity());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // Stop taking new orders, let the writer drain what is already queued
+        running = false;
+        writer.join(commitTimeout.toMillis());
+    }
+
+    /**
+     * Reserves stock for a new order, persists it with its notification and returns it once committed.
+     * Throws 409 when a product is out of stock, 429 when the intake queue is full, 503 when the order
+     * was withdrawn unsaved after commit-timeout and 504 when it may still be saved (check before retrying).
+     */
+    public Order place(Order order) {
+        if (!groupCommit) {
+            long start = System.nanoTime();
+            Order saved = transactionTemplate.execute(status -> {
+                stockService.reserve(order.getProducts());
+                Order savedOrder = orderRepository.save(order);
+                outboxMessageRepository.save(OutboxMessage.orderPlaced(savedOrder));
+                return savedOrder;
+            });
+            commitLatency.recordSince(start);
+            batches.incrementAndGet();
+            committedOrders.incrementAndGet();
+            maxBatchSize.accumulate(1);
+            return saved;
+        }
+
+        Pending pending = new Pending(order);
+        if (!running || !queue.offer(pending)) {
+            rejected.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many orders right now, please retry");
+        }
+        try {
+            return await(pending);
+        } catch (TimeoutException e) {
+            if (pending.claim()) {
+                // Still queued: the writer will skip it, so a retry can't create a duplicate
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order is taking too long to save");
+            }
+        }
+        // The writer has it in a transaction: wait for that transaction's outcome
+        try {
+            return await(pending);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Order may still be saved, check your orders before placing it again");
+        }
+    }
+
+    private Order await(Pending pending) throws TimeoutException {
+        try {
+            return pending.result().get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.claim()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order was interrupted");
+            }
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Order may still be saved, check your orders before placing it again");
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Fill the group until it is full or the first order has waited max-wait
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatch - batch.size());
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // Orders whose callers already gave up are dropped unsaved
+                batch.removeIf(pending -> !pending.claim());
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                logger.error("Order writer failed", e);
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        // Anything still queued after an interrupt gets an answer rather than a timeout
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            left.result().completeExceptionally(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server is shutting down"));
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<Pending> accepted = new ArrayList<>(batch.size());
+        Map<Pending, ResponseStatusException> outOfStock = new HashMap<>();
+        try {
+            List<Order> saved = transactionTemplate.execute(status -> {
+                accepted.clear();
+                outOfStock.clear();
+                for (Pending pending : batch) {
+                    try {
+                        // An order that can't be served gives its partial reservation back itself,
+                        // so it just drops out of the group
+                        stockService.reserve(pending.order().getProducts());
+                        accepted.add(pending);
+                    } catch (ResponseStatusException e) {
+                        outOfStock.put(pending, e);
+                    }
+                }
+                List<Order> savedOrders = orderRepository.saveAll(accepted.stream().map(Pending::order).toList());
+                outboxMessageRepository.saveAll(savedOrders.stream().map(OutboxMessage::orderPlaced).toList());
+                return savedOrders;
+            });
+            commitLatency.recordSince(start);
+            batches.incrementAndGet();
+            committedOrders.addAndGet(accepted.size());
+            maxBatchSize.accumulate(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).result().complete(saved.get(i));
+            }
+            outOfStock.forEach((pending, e) -> pending.result().completeExceptionally(e));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().result().completeExceptionally(e);
+                return;
+            }
+            // One bad order must not fail the others: retry them one transaction each
+            logger.warn("Group commit of {} orders failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                resetIds(pending.order());
+                commit(List.of(pending));
+            }
+        }
+    }
+
+    // The rolled-back attempt already handed out sequence ids; clear them so save() persists again
+    private static void resetIds(Order order) {
+        order.setId(null);
+        order.getProducts().forEach(item -> item.setId(null));
+    }
+
+    public IntakeStats stats() {
+        long n = batches.get();
+        return new IntakeStats(
+                groupCommit,
+                queue.size(),
+                queue.size() + queue.remainingCapacity(),
+                n,
+                committedOrders.get(),
+                n == 0 ? 0.0 : (double) committedOrders.get() / n,
+                maxBatchSize.get(),
+                rejected.get(),
+                commitLatency.snapshot()
+        );
+    }
+}
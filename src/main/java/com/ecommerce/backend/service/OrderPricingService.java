@@ -0,0 +1,85 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Prices a new order from the catalog instead of trusting the client:
+ * each line only needs productId + quantity, name and price are copied from the product.
+ * All products of the order are loaded with a single "WHERE id IN (...)" query.
+ */
+@Service
+public class OrderPricingService {
+
+    private final ProductRepository productRepository;
+
+    public OrderPricingService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public void price(Order order) {
+        List<OrderItem> items = order.getProducts();
+        if (items == null || items.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order has no items");
+        }
+        for (OrderItem item : items) {
+            if (item.getProductId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every order item needs a productId");
+            }
+            if (item.getQuantity() == null || item.getQuantity() < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be at least 1");
+            }
+        }
+
+        Set<Long> ids = items.stream().map(OrderItem::getProductId).collect(Collectors.toSet());
+        // Soft-deleted products are filtered out by the entity's @SQLRestriction
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<String> unavailable = new ArrayList<>();
+        for (OrderItem item : items) {
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product " + item.getProductId() + " not found");
+            }
+            if (!product.isAvailable() || product.getPrice() == null) {
+                unavailable.add(product.getName());
+                continue;
+            }
+            // price is already the promotional price when onPromotion (previousPrice is the old one)
+            item.setName(product.getName());
+            item.setPrice(product.getPrice());
+        }
+        if (!unavailable.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "No longer available: " + String.join(", ", unavailable));
+        }
+
+        order.setTotalAmount(total(items));
+    }
+
+    public static double total(List<OrderItem> items) {
+        if (items == null) {
+            return 0;
+        }
+        // Sum in cents so 0.1 + 0.2 style errors don't show up in the stored total
+        long cents = 0;
+        for (OrderItem item : items) {
+            if (item.getPrice() != null && item.getQuantity() != null) {
+                cents += Math.round(item.getPrice() * 100) * item.getQuantity();
+            }
+        }
+        return cents / 100.0;
+    }
+}
@@ -2,10 +2,19 @@
 
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.dto.OrderFilter;
 import com.ecommerce.backend.entity.Order;
 import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.OrderSpecifications;
 import org.springframework.beans.factory.annotation.Autowired; // Keep this import, but it's not strictly necessary if only using constructor injection
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Set;
 
 @Service
 public class OrderService {
@@ -16,17 +25,43 @@ public class OrderService {
     // ✅ This is correctly injected via the constructor below.
     private final OrderRepository orderRepository;
 
+    private final StockService stockService;
+
     // ✅ Constructor Injection is the preferred method in modern Spring.
-    public OrderService(OrderRepository orderRepository) {
+    public OrderService(OrderRepository orderRepository, StockService stockService) {
         this.orderRepository = orderRepository;
+        this.stockService = stockService;
     }
 
+    // Only columns that lead one of the "orders" indexes (or the PK) can be sorted on
+    private static final Set<String> SORTABLE = Set.of("date", "id", "status", "city");
+
     // Existing methods...
 
+    public Page<Order> findOrders(OrderFilter filter, Pageable pageable) {
+        pageable.getSort().forEach(order -> {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort orders by " + order.getProperty());
+            }
+        });
+        return orderRepository.findAll(OrderSpecifications.matching(filter), pageable);
+    }
+
+    // A cancelled order gives its units back; un-cancelling takes them again (409 if gone meanwhile)
+    public static boolean holdsStock(String status) {
+        return status == null || !(status.equalsIgnoreCase("Cancelled") || status.equalsIgnoreCase("Canceled"));
+    }
+
+    @Transactional
     public Order updateStatus(Long id, String status) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        if (holdsStock(order.getStatus()) && !holdsStock(status)) {
+            stockService.release(order.getProducts());
+        } else if (!holdsStock(order.getStatus()) && holdsStock(status)) {
+            stockService.reserve(order.getProducts());
+        }
         order.setStatus(status);
         return orderRepository.save(order);
     }
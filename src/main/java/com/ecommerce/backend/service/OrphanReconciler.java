@@ -0,0 +1,298 @@
+package com.ecommerce.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.config.ResilienceConfig;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.repository.StoredBlobRepository;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deletes stored images nothing points to, for what BlobStore doesn't track: uploads from before
+ * content addressing, assets whose delete failed, temp files of crashed jobs.
+ * An image is an orphan when no live product/category references it, it has no StoredBlob row
+ * and it is older than app.blobs.grace-period (a fresh upload is never taken before its product is saved).
+ * Each run only looks at the next slice and resumes where the previous one stopped:
+ * <ul>
+ * <li>Cloudinary: one Admin API page (500 assets) at a time per folder, following next_cursor;
+ * orphans are deleted 100 per deleteResources call. A run makes at most api-calls-per-run
+ * Admin API calls (listing + deleting), which keeps the hourly job under the account's rate limit.</li>
+ * <li>Local: the next local-files-per-run names of the upload directory, in name order.</li>
+ * </ul>
+ * Off unless app.orphans.enabled: "not referenced by this database" is only true for the deployment
+ * that owns the Cloudinary folders; a staging instance sharing the account would delete production images.
+ */
+@Service
+public class OrphanReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanReconciler.class);
+
+    static final int PAGE_SIZE = 500;
+    static final int DELETE_BATCH = 100; // Admin API maximum per deleteResources call
+    private static final String LOCAL_PREFIX = "/uploads/";
+    private static final String CLOUDINARY_UPLOAD = "/upload/";
+
+    public record OrphanStats(long cloudinaryScanned, long cloudinaryDeleted, long localScanned, long localDeleted) {
+    }
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final StoredBlobRepository storedBlobRepository;
+    private final Cloudinary cloudinary;
+    private final DependencyGuard cloudinaryGuard;
+    private final boolean enabled;
+    private final String uploadDir;
+    private final Duration gracePeriod;
+    private final List<String> folders;
+    private final int apiCallsPerRun;
+    private final int localFilesPerRun;
+
+    // Where the next run resumes (only touched by reconcile, under the lock).
+    // A ReentrantLock, not synchronized: the run blocks on I/O, which would pin a virtual thread.
+    private final ReentrantLock running = new ReentrantLock();
+    private int folderIndex;
+    private String cloudinaryCursor;
+    private String localCursor = "";
+
+    private final AtomicLong cloudinaryScanned = new AtomicLong();
+    private final AtomicLong cloudinaryDeleted = new AtomicLong();
+    private final AtomicLong localScanned = new AtomicLong();
+    private final AtomicLong localDeleted = new AtomicLong();
+
+    public OrphanReconciler(ProductRepository productRepository,
+                            CategoryRepository categoryRepository,
+                            StoredBlobRepository storedBlobRepository,
+                            Cloudinary cloudinary,
+                            @Qualifier(ResilienceConfig.CLOUDINARY_GUARD) DependencyGuard cloudinaryGuard,
+                            @Value("${app.orphans.enabled:false}") boolean enabled,
+                            @Value("${file.upload-dir:./uploads/}") String uploadDir,
+                            @Value("${app.blobs.grace-period:P1D}") Duration gracePeriod,
+                            @Value("${app.orphans.cloudinary-folders:products,categories}") List<String> folders,
+                            @Value("${app.orphans.api-calls-per-run:20}") int apiCallsPerRun,
+                            @Value("${app.orphans.local-files-per-run:1000}") int localFilesPerRun) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.storedBlobRepository = storedBlobRepository;
+        this.cloudinary = cloudinary;
+        this.cloudinaryGuard = cloudinaryGuard;
+        this.enabled = enabled;
+        this.uploadDir = uploadDir;
+        this.gracePeriod = gracePeriod;
+        this.folders = folders.stream().filter(folder -> !folder.isBlank()).toList();
+        this.apiCallsPerRun = apiCallsPerRun;
+        this.localFilesPerRun = localFilesPerRun;
+    }
+
+    /**
+     * Reconciles the next slice of Cloudinary assets and local files; returns how many were deleted.
+     */
+    @Scheduled(cron = "${app.orphans.cron:0 15 * * * *}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        running.lock();
+        try {
+            Instant cutoff = Instant.now().minus(gracePeriod);
+            Set<String> referenced = new HashSet<>(productRepository.findAllImageUrls());
+            referenced.addAll(categoryRepository.findAllImageUrls());
+
+            int deleted = reconcileCloudinary(referenced, cutoff) + reconcileLocal(referenced, cutoff);
+            if (deleted > 0) {
+                logger.info("Deleted {} orphaned images", deleted);
+            }
+            return deleted;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private int reconcileCloudinary(Set<String> referenced, Instant cutoff) {
+        if (folders.isEmpty()) {
+            return 0;
+        }
+        Set<String> referencedIds = new HashSet<>();
+        for (String url : referenced) {
+            String publicId = cloudinaryPublicId(url);
+            if (publicId != null) {
+                referencedIds.add(publicId);
+            }
+        }
+
+        int calls = 0;
+        int deleted = 0;
+        int foldersDone = 0;
+        try {
+            while (calls < apiCallsPerRun && foldersDone < folders.size()) {
+                Map<String, Object> options = new HashMap<>();
+                options.put("type", "upload");
+                options.put("prefix", folders.get(folderIndex) + "/");
+                options.put("max_results", PAGE_SIZE);
+                if (cloudinaryCursor != null) {
+                    options.put("next_cursor", cloudinaryCursor);
+                }
+                Map<?, ?> page = cloudinaryGuard.call(() -> cloudinary.api().resources(options));
+                calls++;
+
+                List<String> orphans = cloudinaryOrphans((List<?>) page.get("resources"), referencedIds, cutoff);
+                int done = 0;
+                while (done < orphans.size() && calls < apiCallsPerRun) {
+                    List<String> batch = orphans.subList(done, Math.min(done + DELETE_BATCH, orphans.size()));
+                    cloudinaryGuard.call(() -> cloudinary.api().deleteResources(batch,
+                            ObjectUtils.asMap("type", "upload", "invalidate", true)));
+                    calls++;
+                    done += batch.size();
+                }
+                deleted += done;
+                cloudinaryDeleted.addAndGet(done);
+                if (done < orphans.size()) {
+                    // Out of calls: list this page again next run (what was deleted won't be on it)
+                    break;
+                }
+
+                Object next = page.get("next_cursor");
+                if (next == null) {
+                    cloudinaryCursor = null;
+                    folderIndex = (folderIndex + 1) % folders.size();
+                    foldersDone++;
+                } else {
+                    cloudinaryCursor = next.toString();
+                }
+            }
+        } catch (Exception e) {
+            // Resumes from the same page next run
+            logger.warn("Cloudinary orphan scan stopped: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    private List<String> cloudinaryOrphans(List<?> resources, Set<String> referencedIds, Instant cutoff) {
+        List<String> candidates = new ArrayList<>();
+        for (Object resource : resources) {
+            Map<?, ?> asset = (Map<?, ?>) resource;
+            String publicId = String.valueOf(asset.get("public_id"));
+            if (!referencedIds.contains(publicId) && createdBefore(asset.get("created_at"), cutoff)) {
+                candidates.add(publicId);
+            }
+        }
+        cloudinaryScanned.addAndGet(resources.size());
+        if (!candidates.isEmpty()) {
+            candidates.removeAll(new HashSet<>(storedBlobRepository.findTrackedRemoteIds(candidates)));
+        }
+        return candidates;
+    }
+
+    private int reconcileLocal(Set<String> referenced, Instant cutoff) {
+        Path dir = Path.of(uploadDir);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        Set<String> referencedFiles = new HashSet<>();
+        for (String url : referenced) {
+            if (url.contains(LOCAL_PREFIX)) {
+                referencedFiles.add(url.substring(url.lastIndexOf('/') + 1));
+            }
+        }
+
+        int deleted = 0;
+        try {
+            TreeSet<String> slice = nextLocalSlice(dir);
+            localCursor = slice.size() < localFilesPerRun ? "" : slice.last();
+            localScanned.addAndGet(slice.size());
+
+            Set<String> urls = new HashSet<>();
+            for (String name : slice) {
+                urls.add(LOCAL_PREFIX + name);
+                urls.add(LOCAL_PREFIX + ImageRenditions.originalName(name));
+            }
+            Set<String> tracked = urls.isEmpty() ? Set.of() : new HashSet<>(storedBlobRepository.findTrackedUrls(urls));
+
+            for (String name : slice) {
+                Path file = dir.resolve(name);
+                if (!Files.isRegularFile(file) || !Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    continue;
+                }
+                // Names starting with "." are temp files of uploads/optimizations that never finished
+                if (!name.startsWith(".")) {
+                    String original = ImageRenditions.originalName(name);
+                    if (referencedFiles.contains(name) || referencedFiles.contains(original)
+                            || tracked.contains(LOCAL_PREFIX + name) || tracked.contains(LOCAL_PREFIX + original)) {
+                        continue;
+                    }
+                }
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Local orphan scan stopped: {}", e.getMessage());
+        }
+        localDeleted.addAndGet(deleted);
+        return deleted;
+    }
+
+    // The first localFilesPerRun names after the cursor, without sorting the whole directory
+    private TreeSet<String> nextLocalSlice(Path dir) throws IOException {
+        TreeSet<String> slice = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.compareTo(localCursor) > 0) {
+                    slice.add(name);
+                    if (slice.size() > localFilesPerRun) {
+                        slice.pollLast();
+                    }
+                }
+            }
+        }
+        return slice;
+    }
+
+    // ".../image/upload/v1712/products/abc.jpg" -> "products/abc"; null for other URLs
+    static String cloudinaryPublicId(String url) {
+        int upload = url.indexOf(CLOUDINARY_UPLOAD);
+        if (upload < 0) {
+            return null;
+        }
+        String path = url.substring(upload + CLOUDINARY_UPLOAD.length()).replaceFirst("^v\\d+/", "");
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') ? path.substring(0, dot) : path;
+    }
+
+    private static boolean createdBefore(Object createdAt, Instant cutoff) {
+        try {
+            return createdAt != null && Instant.parse(createdAt.toString()).isBefore(cutoff);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    public OrphanStats stats() {
+        return new OrphanStats(cloudinaryScanned.get(), cloudinaryDeleted.get(), localScanned.get(), localDeleted.get());
+    }
+}
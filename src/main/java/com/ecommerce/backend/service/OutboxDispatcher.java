@@ -0,0 +1,265 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.config.AsyncConfig;
+import com.ecommerce.backend.config.ResilienceConfig;
+import com.ecommerce.backend.entity.OutboxMessage;
+import com.ecommerce.backend.metrics.LatencyRecorder;
+import com.ecommerce.backend.repository.OutboxMessageRepository;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import com.ecommerce.backend.resilience.DependencyUnavailableException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends pending outbox messages in batches: one SMTP connection per batch
+ * (JavaMailSender.send(MimeMessage...)), not one per email.
+ * Failed messages are retried with exponential backoff and given up (FAILED) after max-attempts.
+ * When a burst leaves digest-threshold or more messages due at once, they go out as a single digest.
+ * At most one dispatch runs at a time per instance.
+ * SMTP calls go through the smtp DependencyGuard: while its circuit is open nothing is sent
+ * and no attempt is used up; a timed-out batch counts as a failed attempt.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    public record OutboxStats(long pending, long failed, long emailsSent, long messagesSent, long retries,
+                              LatencyRecorder.Snapshot batches) {
+    }
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final Executor mailExecutor;
+    private final DependencyGuard smtpGuard;
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int digestThreshold;
+    private final Duration retention;
+
+    private final AtomicLong emailsSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final LatencyRecorder batchLatency = new LatencyRecorder();
+
+    public OutboxDispatcher(OutboxMessageRepository outboxMessageRepository,
+                            EmailService emailService,
+                            JavaMailSender mailSender,
+                            @Qualifier(AsyncConfig.MAIL_EXECUTOR) Executor mailExecutor,
+                            @Qualifier(ResilienceConfig.SMTP_GUARD) DependencyGuard smtpGuard,
+                            @Value("${app.outbox.batch-size:50}") int batchSize,
+                            @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${app.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                            @Value("${app.outbox.max-backoff:PT1H}") Duration maxBackoff,
+                            @Value("${app.outbox.digest-threshold:0}") int digestThreshold,
+                            @Value("${app.outbox.retention:P30D}") Duration retention) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.smtpGuard = smtpGuard;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.digestThreshold = digestThreshold;
+        this.retention = retention;
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.poll-interval:PT5S}", fixedDelayString = "${app.outbox.poll-interval:PT5S}")
+    public void dispatchDue() {
+        // SMTP I/O runs on the mail executor: the scheduler thread is shared with the other jobs.
+        // Skip this tick if the previous run is still sending.
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mailExecutor.execute(() -> {
+                try {
+                    // Keep going while batches come back full (backlog after an SMTP outage)
+                    while (dispatch(Instant.now()) == batchSize) {
+                        logger.debug("Outbox backlog, sending next batch");
+                    }
+                } finally {
+                    dispatching.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dispatching.set(false);
+            logger.warn("Mail executor is full, outbox dispatch postponed to the next tick");
+        }
+    }
+
+    /**
+     * Sends one batch of messages due at {@code now}; returns how many were attempted.
+     */
+    public int dispatch(Instant now) {
+        List<OutboxMessage> due = outboxMessageRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                OutboxMessage.Status.PENDING, now, Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        Map<OutboxMessage, Exception> failures;
+        try {
+            failures = digestThreshold > 0 && due.size() >= digestThreshold
+                    ? sendDigest(due)
+                    : sendEach(due);
+        } catch (DependencyUnavailableException e) {
+            // Circuit open or bulkhead full: nothing was sent, try again on a later tick
+            logger.warn("SMTP unavailable ({}), {} outbox messages stay pending", e.getReason(), due.size());
+            return 0;
+        }
+        batchLatency.recordSince(start);
+
+        List<Long> sent = new ArrayList<>(due.size());
+        for (OutboxMessage message : due) {
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                sent.add(message.getId());
+            } else {
+                scheduleRetry(message, failure, now);
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxMessageRepository.markSent(sent, now);
+            messagesSent.addAndGet(sent.size());
+        }
+        return due.size();
+    }
+
+    // Every message in one connection; the result maps each failed message to its error
+    private Map<OutboxMessage, Exception> sendEach(List<OutboxMessage> due) {
+        Map<OutboxMessage, Exception> failures = new IdentityHashMap<>();
+        Map<MimeMessage, OutboxMessage> messages = new LinkedHashMap<>();
+        for (OutboxMessage message : due) {
+            try {
+                messages.put(emailService.orderNotification(message), message);
+            } catch (MessagingException e) {
+                failures.put(message, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            smtpGuard.call(() -> {
+                mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+                return null;
+            });
+            emailsSent.addAndGet(messages.size());
+        } catch (DependencyUnavailableException e) {
+            if (e.getReason() != DependencyUnavailableException.Reason.TIMEOUT) {
+                throw e;
+            }
+            // Some may have gone out before the timeout: they'll be sent again (at-least-once)
+            messages.values().forEach(message -> failures.put(message, e));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                messages.values().forEach(message -> failures.put(message, e));
+            } else {
+                failed.forEach((mime, error) -> failures.put(messages.get(mime), error));
+                emailsSent.addAndGet(messages.size() - failed.size());
+            }
+        } catch (MailException e) {
+            // Connection or authentication failure: nothing was sent
+            messages.values().forEach(message -> failures.put(message, e));
+        }
+        return failures;
+    }
+
+    private Map<OutboxMessage, Exception> sendDigest(List<OutboxMessage> due) {
+        Map<OutboxMessage, Exception> failures = new IdentityHashMap<>();
+        try {
+            MimeMessage digest = emailService.orderDigest(due);
+            smtpGuard.call(() -> {
+                mailSender.send(digest);
+                return null;
+            });
+            emailsSent.incrementAndGet();
+        } catch (DependencyUnavailableException e) {
+            if (e.getReason() != DependencyUnavailableException.Reason.TIMEOUT) {
+                throw e;
+            }
+            due.forEach(message -> failures.put(message, e));
+        } catch (MessagingException | MailException e) {
+            due.forEach(message -> failures.put(message, e));
+        }
+        return failures;
+    }
+
+    private void scheduleRetry(OutboxMessage message, Exception failure, Instant now) {
+        int attempts = message.getAttempts() + 1;
+        String error = String.valueOf(failure.getMessage());
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+
+        if (attempts >= maxAttempts) {
+            logger.error("Giving up on outbox message #{} (order #{}) after {} attempts: {}",
+                    message.getId(), message.getOrderId(), attempts, error);
+            outboxMessageRepository.markAttempt(message.getId(), OutboxMessage.Status.FAILED, attempts, now, error);
+            return;
+        }
+
+        // initial-backoff * 2^(attempts-1), capped, with +/-20% jitter so retries don't all land together
+        long backoffMillis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 20));
+        backoffMillis += (long) (backoffMillis * ThreadLocalRandom.current().nextDouble(-0.2, 0.2));
+        Instant next = now.plusMillis(backoffMillis);
+
+        logger.warn("Outbox message #{} (order #{}) failed, attempt {}/{}, retrying at {}: {}",
+                message.getId(), message.getOrderId(), attempts, maxAttempts, next, error);
+        outboxMessageRepository.markAttempt(message.getId(), OutboxMessage.Status.PENDING, attempts, next, error);
+        retries.incrementAndGet();
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // nightly
+    public void purgeSent() {
+        int deleted = outboxMessageRepository.deleteSentBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Purged {} sent outbox messages", deleted);
+        }
+    }
+
+    public OutboxStats stats() {
+        return new OutboxStats(
+                outboxMessageRepository.countByStatus(OutboxMessage.Status.PENDING),
+                outboxMessageRepository.countByStatus(OutboxMessage.Status.FAILED),
+                emailsSent.get(),
+                messagesSent.get(),
+                retries.get(),
+                batchLatency.snapshot()
+        );
+    }
+}
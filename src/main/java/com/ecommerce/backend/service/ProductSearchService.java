@@ -0,0 +1,56 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.search.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Owns the in-memory product search index: full build at startup,
+ * then one document re-indexed per committed product write.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    public static final int MAX_RESULTS = 100;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    public ProductSearchService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        index.rebuild(productRepository.findAll());
+        logger.info("Search index built: {} products in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public List<ProductSearchIndex.Hit> search(String query, int limit) {
+        return index.search(query, Math.min(Math.max(limit, 1), MAX_RESULTS));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() != CatalogChangedEvent.Type.PRODUCT) {
+            return;
+        }
+        if (event.deleted()) {
+            index.remove(event.id());
+            return;
+        }
+        productRepository.findById(event.id())
+                .ifPresentOrElse(index::upsert, () -> index.remove(event.id()));
+    }
+}
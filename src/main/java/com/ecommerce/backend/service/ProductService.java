@@ -0,0 +1,89 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.cache.CatalogCache;
+import com.ecommerce.backend.dto.ChangeSet;
+import com.ecommerce.backend.dto.ProductFilter;
+import com.ecommerce.backend.dto.ProductPage;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+@Service
+public class ProductService {
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Versioned prefix so we can change the cursor format later without breaking old links
+    private static final String CURSOR_PREFIX = "p1:";
+
+    private final ProductRepository productRepository;
+    private final CatalogCache catalogCache;
+
+    public ProductService(ProductRepository productRepository, CatalogCache catalogCache) {
+        this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+    }
+
+    public ProductPage getProductPage(String cursor, int limit, ProductFilter filter) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        Long afterId = decodeCursor(cursor);
+
+        CatalogCache.ProductPageKey key = new CatalogCache.ProductPageKey(cursor, pageSize, filter);
+        return catalogCache.getProductPage(key, () -> loadProductPage(afterId, pageSize, filter));
+    }
+
+    private ProductPage loadProductPage(Long afterId, int pageSize, ProductFilter filter) {
+        // Fetch one extra row to know if there is a next page without a COUNT(*)
+        List<Product> rows = productRepository.findPageAfter(afterId, filter, pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(rows.get(pageSize - 1).getId());
+        }
+        return new ProductPage(List.copyOf(rows), nextCursor);
+    }
+
+    // since == null means a full sync
+    @Transactional(readOnly = true)
+    public ChangeSet<Product> getChangesSince(Instant since) {
+        Instant queriedAt = Instant.now();
+        if (since == null) {
+            return new ChangeSet<>(productRepository.findAll(), List.of(), ChangeSet.nextSince(null, queriedAt));
+        }
+        return new ChangeSet<>(
+                productRepository.findByUpdatedAtAfterOrderByUpdatedAtAsc(since),
+                productRepository.findDeletedIdsSince(since),
+                ChangeSet.nextSince(since, queriedAt)
+        );
+    }
+
+    static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Unknown cursor version");
+            }
+            return Long.parseLong(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
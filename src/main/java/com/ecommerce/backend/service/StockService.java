@@ -0,0 +1,88 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserves stock for order lines with one "UPDATE ... WHERE stock >= ?" per product:
+ * no read-modify-write, no table lock, only the product row is locked until commit.
+ * Products are always updated in ascending id order, so two orders touching the same
+ * products wait for each other instead of deadlocking.
+ * Stock is part of the catalog JSON, so every product whose stock changed gets a
+ * CatalogChangedEvent (acted on after commit, like any other product write).
+ */
+@Service
+public class StockService {
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StockService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Reserves every line or none: if a product runs out, what was already reserved
+     * for this order is given back before the 409, so the caller's transaction
+     * (possibly shared with other orders) can still commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY, noRollbackFor = ResponseStatusException.class)
+    public void reserve(List<OrderItem> items) {
+        Instant now = Instant.now();
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantitiesByProduct(items).entrySet()) {
+            if (productRepository.reserveStock(line.getKey(), line.getValue(), now) == 0) {
+                // Stock ends where it started, so nothing to announce
+                reserved.forEach(r -> productRepository.releaseStock(r.getKey(), r.getValue(), now));
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Out of stock: " + nameOf(items, line.getKey()));
+            }
+            reserved.add(line);
+        }
+        reserved.forEach(r -> eventPublisher.publishEvent(CatalogChangedEvent.productSaved(r.getKey())));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(List<OrderItem> items) {
+        Instant now = Instant.now();
+        quantitiesByProduct(items).forEach((productId, quantity) -> {
+            if (productRepository.releaseStock(productId, quantity, now) > 0) {
+                eventPublisher.publishEvent(CatalogChangedEvent.productSaved(productId));
+            }
+        });
+    }
+
+    // Sorted by product id (lock order); the same product on two lines is reserved once
+    private static Map<Long, Integer> quantitiesByProduct(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        if (items != null) {
+            for (OrderItem item : items) {
+                if (item.getProductId() != null && item.getQuantity() != null) {
+                    quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                }
+            }
+        }
+        return quantities;
+    }
+
+    private static String nameOf(List<OrderItem> items, Long productId) {
+        return items.stream()
+                .filter(item -> productId.equals(item.getProductId()))
+                .map(OrderItem::getName)
+                .findFirst()
+                .orElse("product " + productId);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Category;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.metrics.LatencyRecorder;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.NameCount;
+import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.search.SuggestionTrie;
+import com.ecommerce.backend.search.SuggestionTrie.Suggestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Typeahead for the storefront search box, served from a SuggestionTrie.
+ * Popularity = units ordered for products, product count for categories.
+ * Catalog writes update the trie in place; popularity is refreshed hourly.
+ * A rebuild replaces the trie with what it read from the DB, so catalog changes that arrive while it
+ * runs are recorded and applied again afterwards (each re-reads its row, so applying twice is harmless).
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+
+    public static final int TOP_K = 10;
+    static final String PRODUCT = "product";
+    static final String CATEGORY = "category";
+
+    public record SuggestStats(SuggestionTrie.Stats trie, LatencyRecorder.Snapshot lookups) {
+    }
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderRepository orderRepository;
+
+    private final SuggestionTrie trie = new SuggestionTrie(TOP_K);
+    private final LatencyRecorder lookupLatency = new LatencyRecorder();
+
+    // Last popularity figures, reused for incremental upserts between refreshes
+    private volatile Map<String, Long> unitsByProductName = Map.of();
+    private volatile Map<String, Long> productsByCategory = Map.of();
+
+    // One rebuild at a time (a lock, not synchronized: the DB reads must not pin a virtual thread)
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Changes seen while a rebuild runs (null otherwise), guarded by this
+    private List<CatalogChangedEvent> changedDuringRebuild;
+
+    public SuggestionService(ProductRepository productRepository,
+                             CategoryRepository categoryRepository,
+                             OrderRepository orderRepository) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000) // hourly popularity refresh
+    public void rebuild() {
+        rebuildLock.lock();
+        List<CatalogChangedEvent> replay;
+        long start = System.nanoTime();
+        try {
+            synchronized (this) {
+                changedDuringRebuild = new ArrayList<>();
+            }
+            try {
+                unitsByProductName = toMap(orderRepository.sumQuantityByItemName());
+                productsByCategory = toMap(productRepository.countByCategory());
+
+                List<Suggestion> all = new ArrayList<>();
+                productRepository.findAll().forEach(p -> all.add(toSuggestion(p)));
+                categoryRepository.findAll().forEach(c -> all.add(toSuggestion(c)));
+                trie.rebuild(all);
+            } finally {
+                synchronized (this) {
+                    replay = changedDuringRebuild;
+                    changedDuringRebuild = null;
+                }
+            }
+            // The snapshot may predate these; later changes go straight to the trie again
+            replay.forEach(this::apply);
+        } finally {
+            rebuildLock.unlock();
+        }
+
+        SuggestionTrie.Stats stats = trie.stats();
+        logger.info("Suggestion trie built: {} suggestions, {} nodes, ~{} KB in {} ms",
+                stats.suggestions(), stats.nodes(), stats.estimatedBytes() / 1024,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return trie.lookup(prefix, Math.min(Math.max(limit, 1), TOP_K));
+        } finally {
+            lookupLatency.recordSince(start);
+        }
+    }
+
+    public SuggestStats stats() {
+        return new SuggestStats(trie.stats(), lookupLatency.snapshot());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        synchronized (this) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event);
+            }
+        }
+        apply(event);
+    }
+
+    private void apply(CatalogChangedEvent event) {
+        String type = event.type() == CatalogChangedEvent.Type.PRODUCT ? PRODUCT : CATEGORY;
+        if (event.deleted()) {
+            trie.remove(type, event.id());
+            return;
+        }
+        if (type.equals(PRODUCT)) {
+            productRepository.findById(event.id())
+                    .ifPresentOrElse(p -> trie.upsert(toSuggestion(p)), () -> trie.remove(type, event.id()));
+        } else {
+            categoryRepository.findById(event.id())
+                    .ifPresentOrElse(c -> trie.upsert(toSuggestion(c)), () -> trie.remove(type, event.id()));
+        }
+    }
+
+    private Suggestion toSuggestion(Product product) {
+        long units = product.getName() == null ? 0 : unitsByProductName.getOrDefault(product.getName(), 0L);
+        return new Suggestion(PRODUCT, product.getId(), product.getName(), units);
+    }
+
+    private Suggestion toSuggestion(Category category) {
+        long products = category.getName() == null ? 0 : productsByCategory.getOrDefault(category.getName(), 0L);
+        return new Suggestion(CATEGORY, category.getId(), category.getName(), products);
+    }
+
+    private static Map<String, Long> toMap(List<NameCount> counts) {
+        return counts.stream()
+                .filter(c -> c.getName() != null && c.getTotal() != null)
+                .collect(Collectors.toUnmodifiableMap(NameCount::getName, NameCount::getTotal, Long::sum));
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.backend.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionLimitingDataSourceTests {
+
+    private final DataSource pool = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+
+    @Test
+    void thousandsOfVirtualThreadsNeverHoldMoreConnectionsThanThePool() throws Exception {
+        when(pool.getConnection()).thenReturn(connection);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 5, Duration.ofSeconds(30));
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                futures.add(threads.submit(() -> {
+                    try (Connection ignored = dataSource.getConnection()) {
+                        maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                        Thread.sleep(1);
+                        inUse.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(maxInUse.get()).isEqualTo(5);
+        ConnectionLimitingDataSource.Stats stats = dataSource.stats();
+        assertThat(stats.acquired()).isEqualTo(2000);
+        assertThat(stats.active()).isZero();
+        assertThat(stats.waiting()).isZero();
+    }
+
+    @Test
+    void permitIsReturnedOnceAndAfterPoolFailures() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("pool down")).thenReturn(connection);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("pool down");
+        Connection first = dataSource.getConnection();
+        first.close();
+        first.close();
+        verify(connection, times(2)).close();
+        assertThat(dataSource.stats().active()).isZero();
+
+        // One permit: the second caller times out while the first holds its connection
+        Connection held = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(dataSource.stats().timeouts()).isEqualTo(1);
+        held.close();
+        dataSource.getConnection().close();
+    }
+}
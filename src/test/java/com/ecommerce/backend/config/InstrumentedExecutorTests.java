@@ -0,0 +1,66 @@
+package com.ecommerce.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentedExecutorTests {
+
+    @Test
+    void platformExecutorRejectsBeyondThreadsPlusQueue() throws Exception {
+        try (InstrumentedExecutor executor = InstrumentedExecutor.platform("test-cpu", 2, 3)) {
+            assertBoundedAt(executor, 2, 3);
+        }
+    }
+
+    @Test
+    void virtualExecutorRejectsBeyondConcurrencyPlusQueue() throws Exception {
+        try (InstrumentedExecutor executor = InstrumentedExecutor.virtual("test-io", 2, 3)) {
+            assertBoundedAt(executor, 2, 3);
+        }
+    }
+
+    private static void assertBoundedAt(InstrumentedExecutor executor, int threads, int queue) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads + queue);
+        for (int i = 0; i < threads + queue; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        while (executor.stats().active() < threads) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(TaskRejectedException.class);
+        InstrumentedExecutor.Stats busy = executor.stats();
+        assertThat(busy.active()).isEqualTo(threads);
+        assertThat(busy.queued()).isEqualTo(queue);
+        assertThat(busy.rejected()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        while (executor.stats().completed() < threads + queue) {
+            Thread.onSpinWait();
+        }
+        InstrumentedExecutor.Stats idle = executor.stats();
+        assertThat(idle.active()).isZero();
+        assertThat(idle.queued()).isZero();
+        assertThat(idle.run().count()).isEqualTo(threads + queue);
+
+        // Capacity is available again
+        CountDownLatch again = new CountDownLatch(1);
+        executor.execute(again::countDown);
+        assertThat(again.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
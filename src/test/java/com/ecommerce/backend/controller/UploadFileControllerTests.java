@@ -0,0 +1,149 @@
+package com.ecommerce.backend.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadFileControllerTests {
+
+    private static final String HASHED = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadFileController controller;
+    private byte[] big;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        controller = new UploadFileController(uploadDir.toString(), 16, DataSize.ofKilobytes(64));
+        big = new byte[200_000];
+        new Random(1).nextBytes(big);
+        Files.write(uploadDir.resolve(HASHED + ".jpg"), big);
+        Files.writeString(uploadDir.resolve(HASHED + "_w160.jpg"), "thumbnail");
+        Files.writeString(uploadDir.resolve("legacy_photo.png"), "legacy");
+        Files.writeString(uploadDir.resolve(".upload-1.tmp"), "partial");
+    }
+
+    @Test
+    void filesAreRevalidatedTo304() throws IOException {
+        MockHttpServletResponse response = get(HASHED + ".jpg", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(big);
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        // Never immutable, even for hashed names: optimization rewrites them in place
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache, public");
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"").doesNotStartWith("W/");
+
+        MockHttpServletRequest revalidate = request(HASHED + ".jpg");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse notModified = serve(HASHED + ".jpg", revalidate);
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentLength()).isZero();
+
+        // Rewritten in place (as by optimize): new validator, full response
+        Path file = uploadDir.resolve(HASHED + ".jpg");
+        Files.write(file, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        MockHttpServletRequest stale = request(HASHED + ".jpg");
+        stale.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse rewritten = serve(HASHED + ".jpg", stale);
+        assertThat(rewritten.getStatus()).isEqualTo(200);
+        assertThat(rewritten.getContentAsByteArray()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void rangesAreServedPartially() throws IOException {
+        MockHttpServletResponse middle = get(HASHED + ".jpg", "bytes=1000-1999");
+        assertThat(middle.getStatus()).isEqualTo(206);
+        assertThat(middle.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 1000-1999/200000");
+        assertThat(middle.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(big, 1000, 2000));
+
+        MockHttpServletResponse suffix = get(HASHED + ".jpg", "bytes=-10");
+        assertThat(suffix.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(big, big.length - 10, big.length));
+
+        MockHttpServletResponse cached = get(HASHED + "_w160.jpg", "bytes=5-");
+        assertThat(cached.getContentAsString()).isEqualTo("nail");
+
+        MockHttpServletResponse unsatisfiable = get(HASHED + ".jpg", "bytes=300000-");
+        assertThat(unsatisfiable.getStatus()).isEqualTo(416);
+        assertThat(unsatisfiable.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */200000");
+
+        // A range for another version of the file is ignored
+        MockHttpServletRequest stale = request(HASHED + ".jpg");
+        stale.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        assertThat(serve(HASHED + ".jpg", stale).getStatus()).isEqualTo(200);
+
+        // Several ranges: the whole file
+        assertThat(get(HASHED + ".jpg", "bytes=0-1,5-6").getContentAsByteArray()).hasSize(big.length);
+    }
+
+    @Test
+    void largeFilesAreHandedToSendfileWhenTheServerSupportsIt() throws IOException {
+        MockHttpServletRequest request = request(HASHED + ".jpg");
+        request.setAttribute(UploadFileController.SENDFILE_SUPPORTED, true);
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-");
+
+        MockHttpServletResponse response = serve(HASHED + ".jpg", request);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.getContentLengthLong()).isEqualTo(big.length - 100);
+        assertThat(request.getAttribute(UploadFileController.SENDFILE_FILENAME))
+                .isEqualTo(uploadDir.resolve(HASHED + ".jpg").toRealPath().toString());
+        assertThat(request.getAttribute(UploadFileController.SENDFILE_START)).isEqualTo(100L);
+        assertThat(request.getAttribute(UploadFileController.SENDFILE_END)).isEqualTo((long) big.length);
+    }
+
+    @Test
+    void smallFilesComeFromTheCacheUntilTheyChange() throws IOException {
+        get(HASHED + "_w160.jpg", null);
+        get(HASHED + "_w160.jpg", null);
+        assertThat(controller.cacheStats().hits()).isEqualTo(1);
+
+        Path thumbnail = uploadDir.resolve(HASHED + "_w160.jpg");
+        Files.writeString(thumbnail, "re-optimized");
+        Files.setLastModifiedTime(thumbnail, FileTime.fromMillis(
+                Files.getLastModifiedTime(thumbnail).toMillis() + 1000));
+        assertThat(get(HASHED + "_w160.jpg", null).getContentAsString()).isEqualTo("re-optimized");
+    }
+
+    @Test
+    void tempFilesAndMissingFilesAreNotFound() throws IOException {
+        assertThat(get(".upload-1.tmp", null).getStatus()).isEqualTo(404);
+        assertThat(get("missing.jpg", null).getStatus()).isEqualTo(404);
+    }
+
+    private MockHttpServletResponse get(String filename, String range) throws IOException {
+        MockHttpServletRequest request = request(filename);
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return serve(filename, request);
+    }
+
+    private static MockHttpServletRequest request(String filename) {
+        return new MockHttpServletRequest("GET", "/uploads/" + filename);
+    }
+
+    private MockHttpServletResponse serve(String filename, MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve(filename, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.backend.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PinningMonitorTests {
+
+    private final Object lock = new Object();
+
+    @Test
+    void blockingInsideSynchronizedIsReportedWithItsSite() throws Exception {
+        try (PinningMonitor monitor = PinningMonitor.start(Duration.ofMillis(10))) {
+            for (int i = 0; i < 3; i++) {
+                Thread.ofVirtual().start(this::sleepHoldingTheMonitor).join();
+            }
+
+            // JFR streams events about once a second
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (monitor.stats().events() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+
+            PinningMonitor.Stats stats = monitor.stats();
+            assertThat(stats.enabled()).isTrue();
+            assertThat(stats.events()).isEqualTo(3);
+            assertThat(stats.duration().p50Micros()).isGreaterThanOrEqualTo(50_000);
+            assertThat(stats.topSites()).singleElement().satisfies(site -> {
+                assertThat(site.frame()).startsWith(PinningMonitorTests.class.getName() + ".sleepHoldingTheMonitor:");
+                assertThat(site.count()).isEqualTo(3);
+            });
+        }
+    }
+
+    @Test
+    void disabledMonitorReportsNothing() {
+        PinningMonitor.Stats stats = PinningMonitor.disabled().stats();
+        assertThat(stats.enabled()).isFalse();
+        assertThat(stats.events()).isZero();
+    }
+
+    private void sleepHoldingTheMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderRepositoryTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The mapping orders had before: IDENTITY ids and the items linked through a join table
+    @Entity
+    @Table(name = "legacy_orders")
+    static class LegacyOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String customerName;
+        @OneToMany(cascade = CascadeType.ALL)
+        @JoinTable(name = "legacy_orders_products")
+        List<LegacyOrderItem> products = new ArrayList<>();
+    }
+
+    @Entity
+    @Table(name = "legacy_order_item")
+    static class LegacyOrderItem {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String name;
+        Double price;
+        Integer quantity;
+    }
+
+    @Test
+    void createOrderStatementCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        saveOrder(10); // warm-up
+        saveLegacyOrder(10);
+
+        int orders = 20;
+        statistics.clear();
+        for (int i = 0; i < orders; i++) {
+            saveLegacyOrder(10);
+        }
+        long before = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        for (int i = 0; i < orders; i++) {
+            saveOrder(10);
+        }
+        long after = statistics.getPrepareStatementCount();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(orders * 11L);
+
+        // Before: one INSERT per order and per item (IDENTITY can't be batched), then one batched INSERT
+        // for the 10 join table rows: 12 per order.
+        // After: 1 order INSERT + 1 batched INSERT for its 10 items, plus the pooled sequences called
+        // once per 50 ids (at most 2 calls for 20 orders and 5 for 200 items, depending on earlier tests).
+        assertThat(before).isEqualTo(12L * orders);
+        assertThat(after).isBetween(2L * orders, 2L * orders + 7);
+    }
+
+    private void saveLegacyOrder(int items) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LegacyOrder order = new LegacyOrder();
+            order.customerName = "Customer";
+            for (int i = 0; i < items; i++) {
+                LegacyOrderItem item = new LegacyOrderItem();
+                item.name = "Item " + i;
+                item.price = 10.0;
+                item.quantity = 1;
+                order.products.add(item);
+            }
+            entityManager.persist(order);
+        });
+    }
+
+    private void saveOrder(int items) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = new Order();
+            order.setCustomerName("Customer");
+            order.setDate(LocalDateTime.now());
+            order.setStatus("Pending");
+            List<OrderItem> lines = new ArrayList<>();
+            for (int i = 0; i < items; i++) {
+                OrderItem item = new OrderItem();
+                item.setName("Item " + i);
+                item.setPrice(10.0);
+                item.setQuantity(1);
+                lines.add(item);
+            }
+            order.setProducts(lines);
+            orderRepository.save(order);
+        });
+    }
+}
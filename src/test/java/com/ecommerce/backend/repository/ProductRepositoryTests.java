@@ -0,0 +1,126 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.controller.ProductController;
+import com.ecommerce.backend.dto.ProductFilter;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductRepositoryTests {
+
+    private static final ProductFilter NO_FILTER = new ProductFilter(null, null, null, null, null);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAllStatementCountDoesNotGrowWithCatalog() {
+        insertProducts(5);
+        long small = countStatements(() -> touchImages(productRepository.findAll()));
+
+        insertProducts(45);
+        long large = countStatements(() -> touchImages(productRepository.findAll()));
+
+        assertThat(large).isEqualTo(small).isEqualTo(1);
+    }
+
+    @Test
+    void pageStatementCountDoesNotGrowWithPageSize() {
+        insertProducts(50);
+
+        long small = countStatements(() -> touchImages(productService.getProductPage(null, 5, NO_FILTER).items()));
+        long large = countStatements(() -> touchImages(productService.getProductPage(null, 40, NO_FILTER).items()));
+
+        assertThat(large).isEqualTo(small).isEqualTo(2);
+    }
+
+    @Test
+    void findByIdLoadsImagesInOneStatement() {
+        insertProducts(3);
+        Long id = productRepository.findAll().get(0).getId();
+
+        long statements = countStatements(() -> touchImages(List.of(productRepository.findById(id).orElseThrow())));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void imageOnlyUpdateIsSeenByChanges() {
+        insertProducts(1);
+        Product product = productRepository.findAll().get(0);
+        Instant before = product.getUpdatedAt();
+
+        Product update = new Product();
+        update.setName(product.getName());
+        update.setCategory(product.getCategory());
+        update.setPrice(product.getPrice());
+        update.setAvailable(product.isAvailable());
+        update.setImages(new ArrayList<>(List.of("a.jpg", "d.jpg"))); // mutable, as deserialized from JSON
+        productController.updateProduct(product.getId(), update);
+
+        Product saved = productRepository.findById(product.getId()).orElseThrow();
+        assertThat(saved.getImages()).containsExactly("a.jpg", "d.jpg");
+        assertThat(saved.getUpdatedAt()).isAfter(before);
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Outside any transaction: a lazy collection that wasn't fetched would throw here
+    private static void touchImages(List<Product> products) {
+        products.forEach(p -> assertThat(p.getImages()).hasSize(3));
+    }
+
+    private void insertProducts(int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < count; i++) {
+                Product product = new Product();
+                product.setName("Product " + i);
+                product.setCategory("Category " + (i % 4));
+                product.setPrice(10.0 + i);
+                product.setAvailable(true);
+                product.setImages(List.of("a.jpg", "b.jpg", "c.jpg"));
+                productRepository.save(product);
+            }
+        });
+    }
+}
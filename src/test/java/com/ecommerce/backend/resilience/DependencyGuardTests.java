@@ -0,0 +1,181 @@
+package com.ecommerce.backend.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DependencyGuardTests {
+
+    @Test
+    void circuitOpensOnFailureRateAndIsClosedBySuccessfulProbes() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger invoked = new AtomicInteger();
+        try (DependencyGuard guard = new DependencyGuard("test", settings(4, 4, 2, Duration.ofSeconds(10)),
+                Thread.ofVirtual().factory(), clock::get)) {
+            guard.call(() -> invoked.incrementAndGet());
+            guard.call(() -> invoked.incrementAndGet());
+            fail(guard);
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.CLOSED); // 3 calls < minimum-calls
+            fail(guard);
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.OPEN); // 2 of 4 failed
+
+            assertRejected(guard, DependencyUnavailableException.Reason.CIRCUIT_OPEN);
+            assertThat(invoked).hasValue(2);
+
+            // After open-duration: probes; one failure reopens
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+            fail(guard);
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.OPEN);
+
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+            guard.call(() -> invoked.incrementAndGet());
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.HALF_OPEN);
+            guard.call(() -> invoked.incrementAndGet());
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.CLOSED);
+            assertThat(guard.stats().failureRate()).isZero();
+        }
+    }
+
+    @Test
+    void timeoutAdaptsToObservedLatencyAndInterruptsTheSlowCall() throws Exception {
+        try (DependencyGuard guard = new DependencyGuard("test", settings(10, 10, 1, Duration.ofSeconds(10)))) {
+            assertThat(guard.stats().timeoutMillis()).isEqualTo(5000); // no sample yet: max-timeout
+            for (int i = 0; i < 10; i++) {
+                guard.call(() -> {
+                    Thread.sleep(5);
+                    return null;
+                });
+            }
+            // ~5 ms calls: srtt + 4 * rttvar is far below the 5 s ceiling, floored at min-timeout
+            assertThat(guard.stats().timeoutMillis()).isBetween(50L, 500L);
+
+            CountDownLatch interrupted = new CountDownLatch(1);
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> guard.call(() -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            })).isInstanceOfSatisfying(DependencyUnavailableException.class,
+                    e -> assertThat(e.getReason()).isEqualTo(DependencyUnavailableException.Reason.TIMEOUT));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+            assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+            assertThat(guard.stats().timeouts()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void timeoutBacksOffAndRelearnsWhenLatencyStepsUpForGood() throws Exception {
+        try (DependencyGuard guard = new DependencyGuard("test", settings(4, 4, 1, Duration.ofMillis(100)))) {
+            for (int i = 0; i < 10; i++) {
+                guard.call(() -> {
+                    Thread.sleep(5);
+                    return null;
+                });
+            }
+            assertThat(guard.stats().timeoutMillis()).isLessThan(120);
+
+            // From now on every call takes 120 ms, above the learned timeout
+            int successesInARow = 0;
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (successesInARow < 10 && System.nanoTime() < deadline) {
+                try {
+                    guard.call(() -> {
+                        Thread.sleep(120);
+                        return null;
+                    });
+                    successesInARow++;
+                } catch (DependencyUnavailableException e) {
+                    successesInARow = 0;
+                    if (e.getReason() == DependencyUnavailableException.Reason.CIRCUIT_OPEN) {
+                        Thread.sleep(20);
+                    }
+                }
+            }
+            assertThat(successesInARow).isEqualTo(10);
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.CLOSED);
+            assertThat(guard.stats().timeoutMillis()).isGreaterThan(120);
+        }
+    }
+
+    @Test
+    void payloadTransferTimeExtendsTheTimeoutWithoutSkewingIt() throws Exception {
+        try (DependencyGuard guard = new DependencyGuard("test", settings(10, 10, 1, Duration.ofSeconds(10)))) {
+            for (int i = 0; i < 10; i++) {
+                guard.call(() -> {
+                    Thread.sleep(5);
+                    return null;
+                });
+            }
+            long learned = guard.stats().timeoutMillis();
+            assertThat(learned).isLessThan(500);
+
+            // A large upload after a run of small calls: slower than the learned timeout, within its allowance
+            assertThat(guard.call(() -> {
+                Thread.sleep(learned + 300);
+                return "uploaded";
+            }, Duration.ofSeconds(1))).isEqualTo("uploaded");
+            assertThat(guard.stats().timeoutMillis()).isLessThan(500);
+            assertThat(guard.stats().timeouts()).isZero();
+        }
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondMaxConcurrent() throws Exception {
+        try (DependencyGuard guard = new DependencyGuard("test", settings(10, 10, 1, Duration.ofSeconds(10)))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        guard.call(() -> {
+                            started.countDown();
+                            release.await();
+                            return null;
+                        });
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            started.await();
+
+            assertRejected(guard, DependencyUnavailableException.Reason.BULKHEAD_FULL);
+            assertThat(guard.stats().active()).isEqualTo(2);
+
+            release.countDown();
+            while (guard.stats().active() > 0) {
+                Thread.onSpinWait();
+            }
+            assertThat(guard.<String, RuntimeException>call(() -> "ok")).isEqualTo("ok");
+        }
+    }
+
+    // max-concurrent 2, no bulkhead wait, 50% threshold, timeouts 50 ms .. 5 s
+    private static DependencyGuard.Settings settings(int windowSize, int minimumCalls, int probes, Duration open) {
+        return new DependencyGuard.Settings(2, Duration.ZERO, windowSize, minimumCalls, 0.5, open, probes,
+                Duration.ofMillis(50), Duration.ofSeconds(5));
+    }
+
+    private static void fail(DependencyGuard guard) {
+        assertThatThrownBy(() -> guard.call(() -> {
+            throw new IOException("down");
+        })).isInstanceOf(IOException.class);
+    }
+
+    private static void assertRejected(DependencyGuard guard, DependencyUnavailableException.Reason reason) {
+        assertThatThrownBy(() -> guard.call(() -> "never"))
+                .isInstanceOfSatisfying(DependencyUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(reason));
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.backend.search;
+
+import com.ecommerce.backend.entity.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Pbenchmark -Dtest=ProductSearchIndexBenchmarkTests
+@Tag("benchmark")
+class ProductSearchIndexBenchmarkTests {
+
+    private static final String[] WORDS = {
+            "huile", "argan", "savon", "beldi", "tajine", "terre", "cuite", "creme", "rose", "ghassoul",
+            "ambre", "musc", "henne", "tapis", "berbere", "pouf", "cuir", "lanterne", "cuivre", "theiere",
+            "verre", "menthe", "safran", "cumin", "epices", "olive", "amlou", "miel", "dattes", "figues"
+    };
+
+    @Test
+    void p99UnderFiveMillisecondsFor100kProducts() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            products.add(ProductSearchIndexTests.product(id, words(random, 3) + " " + id, words(random, 1), words(random, 20)));
+        }
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        long buildStart = System.nanoTime();
+        index.rebuild(products);
+        System.out.printf("build: %d ms%n", (System.nanoTime() - buildStart) / 1_000_000);
+
+        String[] queries = new String[2_000];
+        for (int i = 0; i < queries.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            queries[i] = words(random, 1) + " " + word.substring(0, 2 + random.nextInt(word.length() - 2));
+        }
+        for (int i = 0; i < 500; i++) {
+            index.search(queries[i], 20); // warm-up
+        }
+
+        long[] latencies = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            index.search(queries[i], 20);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        double p50 = latencies[latencies.length / 2] / 1e6;
+        double p99 = latencies[(int) (latencies.length * 0.99)] / 1e6;
+        System.out.printf("search: p50 %.2f ms, p99 %.2f ms%n", p50, p99);
+
+        assertThat(p99).isLessThan(5.0);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
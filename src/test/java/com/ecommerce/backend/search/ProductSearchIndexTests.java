@@ -0,0 +1,86 @@
+package com.ecommerce.backend.search;
+
+import com.ecommerce.backend.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTests {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product(1L, "Huile d'argan bio", "Cosmétiques", "Huile pure de Taroudant"),
+                product(2L, "Crème hydratante", "Cosmétiques", "À l'huile d'argan"),
+                product(3L, "Tajine en terre cuite", "Cuisine", "Fait main à Safi"),
+                product(4L, "Savon beldi", "Hammam", "Savon noir traditionnel")
+        ));
+    }
+
+    @Test
+    void foldsAccentsAndCase() {
+        assertThat(ids(index.search("CREME", 10))).containsExactly(2L);
+        assertThat(ids(index.search("cosmetiques", 10))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void matchesLastWordAsPrefix() {
+        assertThat(ids(index.search("taj", 10))).containsExactly(3L);
+        assertThat(ids(index.search("savon be", 10))).first().isEqualTo(4L);
+    }
+
+    @Test
+    void ranksNameMatchesFirst() {
+        // "argan" is in the name of #1 but only in the description of #2
+        assertThat(ids(index.search("argan", 10))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void reindexesUpdatedAndRemovedProducts() {
+        index.upsert(product(3L, "Couscoussier", "Cuisine", null));
+        index.remove(4L);
+
+        assertThat(index.search("tajine", 10)).isEmpty();
+        assertThat(ids(index.search("couscous", 10))).containsExactly(3L);
+        assertThat(index.search("savon", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void concurrentSearchesOnVirtualThreadsShareScoreBuffersSafely() throws Exception {
+        List<Future<?>> searches = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2000; i++) {
+                boolean argan = i % 2 == 0;
+                searches.add(threads.submit(() -> assertThat(ids(index.search(argan ? "argan" : "savon", 10)))
+                        .containsExactly(argan ? new Long[]{1L, 2L} : new Long[]{4L})));
+            }
+            for (Future<?> search : searches) {
+                search.get();
+            }
+        }
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(h -> h.product().getId()).toList();
+    }
+
+    static Product product(Long id, String name, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        return product;
+    }
+}
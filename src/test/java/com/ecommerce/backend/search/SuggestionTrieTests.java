@@ -0,0 +1,53 @@
+package com.ecommerce.backend.search;
+
+import com.ecommerce.backend.search.SuggestionTrie.Suggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTests {
+
+    private SuggestionTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new SuggestionTrie(3);
+        trie.rebuild(List.of(
+                new Suggestion("product", 1L, "Huile d'argan", 50),
+                new Suggestion("product", 2L, "Huile d'olive", 80),
+                new Suggestion("product", 3L, "Amlou aux amandes", 10),
+                new Suggestion("product", 4L, "Argile rose", 5),
+                new Suggestion("category", 1L, "Huiles", 3)
+        ));
+    }
+
+    @Test
+    void returnsMostPopularFirstAndCapsAtTopK() {
+        assertThat(texts(trie.lookup("hui", 10))).containsExactly("Huile d'olive", "Huile d'argan", "Huiles");
+        assertThat(texts(trie.lookup("a", 10))).containsExactly("Huile d'argan", "Amlou aux amandes", "Argile rose");
+    }
+
+    @Test
+    void matchesFromAnyWordStartAndInsideAnEdge() {
+        assertThat(texts(trie.lookup("ARG", 10))).containsExactly("Huile d'argan", "Argile rose");
+        assertThat(texts(trie.lookup("huile d o", 10))).containsExactly("Huile d'olive");
+        assertThat(trie.lookup("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void updatesIncrementally() {
+        trie.upsert(new Suggestion("product", 4L, "Argile rose", 500));
+        assertThat(texts(trie.lookup("ar", 10))).first().isEqualTo("Argile rose");
+
+        trie.remove("product", 2L);
+        assertThat(texts(trie.lookup("huile", 10))).containsExactly("Huile d'argan", "Huiles");
+        assertThat(trie.stats().suggestions()).isEqualTo(4);
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::text).toList();
+    }
+}
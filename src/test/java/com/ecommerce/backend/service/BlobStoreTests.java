@@ -0,0 +1,116 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.controller.ProductController;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.entity.StoredBlob;
+import com.ecommerce.backend.repository.StoredBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.blobs.grace-period=PT0S")
+@ActiveProfiles("h2")
+class BlobStoreTests {
+
+    @TempDir
+    static Path uploadDir;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private ProductController productController;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Test
+    void hashIsComputedWhileStreaming() throws IOException {
+        Path copy = uploadDir.resolve("copy.txt");
+        BlobStore.Hashed hashed = BlobStore.copyHashing(
+                new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), copy);
+
+        assertThat(hashed.sha256()).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(hashed.size()).isEqualTo(5);
+        assertThat(Files.readString(copy)).isEqualTo("hello");
+    }
+
+    @Test
+    void sameBytesAreRegisteredOnce() throws IOException {
+        String sha = BlobStore.hash(new ByteArrayInputStream("same".getBytes(StandardCharsets.UTF_8))).sha256();
+
+        StoredBlob first = blobStore.register(sha, StoredBlob.Storage.LOCAL, "/uploads/" + sha + ".jpg", 4, null, null);
+        StoredBlob second = blobStore.register(sha, StoredBlob.Storage.LOCAL, "/uploads/" + sha + ".jpg", 4, null, null);
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(blobStore.find(sha, StoredBlob.Storage.CLOUDINARY)).isEmpty();
+    }
+
+    @Test
+    void unreferencedBlobsAreSweptWithTheirRenditions() throws IOException {
+        StoredBlob kept = localBlob("kept");
+        StoredBlob unused = localBlob("unused");
+
+        Product product = new Product();
+        product.setName("Mug");
+        product.setPrice(10.0);
+        product.setImages(new ArrayList<>(List.of(kept.getUrl(), kept.getUrl())));
+        product = productController.createProduct(product);
+        assertThat(refCount(kept)).isEqualTo(2);
+
+        blobStore.sweep();
+        assertThat(storedBlobRepository.findById(unused.getId())).isEmpty();
+        assertThat(Files.list(uploadDir).filter(f -> f.getFileName().toString().startsWith(unused.getSha256())))
+                .isEmpty();
+        assertThat(fileOf(kept)).exists();
+
+        // Dropping one of the two references keeps the blob
+        product.setImages(new ArrayList<>(List.of(kept.getUrl())));
+        productController.updateProduct(product.getId(), product);
+        assertThat(refCount(kept)).isEqualTo(1);
+
+        productController.deleteProduct(product.getId());
+        assertThat(refCount(kept)).isZero();
+        blobStore.sweep();
+        assertThat(storedBlobRepository.findById(kept.getId())).isEmpty();
+        assertThat(fileOf(kept)).doesNotExist();
+    }
+
+    private StoredBlob localBlob(String content) throws IOException {
+        String sha = BlobStore.hash(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))).sha256();
+        String filename = sha + ".jpg";
+        Files.writeString(uploadDir.resolve(filename), content);
+        for (int width : ImageRenditions.widths()) {
+            Files.writeString(uploadDir.resolve(ImageRenditions.localName(filename, width)), content);
+        }
+        return blobStore.register(sha, StoredBlob.Storage.LOCAL, "/uploads/" + filename, content.length(), null, null);
+    }
+
+    private int refCount(StoredBlob blob) {
+        return storedBlobRepository.findById(blob.getId()).orElseThrow().getRefCount();
+    }
+
+    private Path fileOf(StoredBlob blob) {
+        return uploadDir.resolve(blob.getSha256() + ".jpg");
+    }
+}
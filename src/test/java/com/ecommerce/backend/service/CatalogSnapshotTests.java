@@ -0,0 +1,19 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTests {
+
+    @Test
+    void explicitRefusalWinsOverTheWildcard() {
+        assertThat(CatalogSnapshot.negotiate("gzip;q=0, *")).isEqualTo("deflate");
+        assertThat(CatalogSnapshot.negotiate("*, gzip;q=0, deflate;q=0")).isEqualTo("identity");
+        assertThat(CatalogSnapshot.negotiate("gzip;q=0.0, deflate")).isEqualTo("deflate");
+        assertThat(CatalogSnapshot.negotiate("*")).isEqualTo("gzip");
+        assertThat(CatalogSnapshot.negotiate("br, gzip;q=0.8")).isEqualTo("gzip");
+        assertThat(CatalogSnapshot.negotiate("*;q=0")).isEqualTo("identity");
+        assertThat(CatalogSnapshot.negotiate(null)).isEqualTo("identity");
+    }
+}
@@ -0,0 +1,291 @@
+package com.ecommerce.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.ecommerce.backend.config.InstrumentedExecutor;
+import com.ecommerce.backend.entity.StoredBlob;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CloudinaryServiceTests {
+
+    private static final FakeCloudinaryServer server = startServer();
+
+    @TempDir
+    Path dir;
+
+    private final InstrumentedExecutor uploadExecutor = InstrumentedExecutor.virtual("test-upload", 4, 10);
+    private final Cloudinary cloudinary = new Cloudinary(ObjectUtils.asMap(
+            "cloud_name", "demo", "api_key", "key", "api_secret", "secret",
+            "upload_prefix", server.uploadPrefix()));
+    // The upload runs on the guard's call thread: what that thread allocates is counted as well
+    private final MeasuredThreads callThreads = new MeasuredThreads();
+    private final DependencyGuard guard = new DependencyGuard("cloudinary-test", new DependencyGuard.Settings(
+            10, Duration.ofMillis(100), 20, 10, 0.5, Duration.ofSeconds(30), 1,
+            Duration.ofSeconds(5), Duration.ofSeconds(60)), callThreads);
+    // Small window and timeouts so the fault test runs fast
+    private final DependencyGuard strictGuard = new DependencyGuard("cloudinary-strict", new DependencyGuard.Settings(
+            10, Duration.ofMillis(100), 4, 4, 0.5, Duration.ofMillis(500), 1,
+            Duration.ofMillis(200), Duration.ofSeconds(1)));
+    private CloudinaryService cloudinaryService;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        server.reset();
+        BlobStore blobStore = mock(BlobStore.class);
+        when(blobStore.register(any(), any(), any(), anyLong(), any(), any())).thenAnswer(call -> {
+            StoredBlob blob = new StoredBlob();
+            blob.setUrl(call.getArgument(2));
+            return blob;
+        });
+        cloudinaryService = new CloudinaryService();
+        ReflectionTestUtils.setField(cloudinaryService, "cloudinary", cloudinary);
+        ReflectionTestUtils.setField(cloudinaryService, "blobStore", blobStore);
+        ReflectionTestUtils.setField(cloudinaryService, "uploadExecutor", uploadExecutor);
+        ReflectionTestUtils.setField(cloudinaryService, "uploadGuard", guard);
+    }
+
+    @AfterEach
+    void closeExecutor() throws InterruptedException {
+        uploadExecutor.close();
+        guard.close();
+        strictGuard.close();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void uploadIsStreamedFromDiskInsteadOfCopiedOntoTheHeap() throws IOException {
+        int size = 16 * 1024 * 1024;
+        MultipartFile photo = diskFile("big.jpg", size);
+        // Warm up the HTTP client so its one-time allocations don't count
+        cloudinaryService.uploadImage(diskFile("warmup.jpg", 1024), "products");
+
+        long byteArray = allocatedBy(() -> cloudinary.uploader().upload(photo.getBytes(),
+                ObjectUtils.asMap("folder", "products", "resource_type", "auto")));
+        long streamed = allocatedBy(() -> cloudinaryService.uploadImage(photo, "products"));
+
+        assertThat(byteArray).isGreaterThan(size);
+        assertThat(streamed).isLessThan(size / 8);
+        assertThat(server.bytesReceived()).isGreaterThan(2L * size);
+    }
+
+    @Test
+    void batchIsUploadedInParallelAndKeepsTheOrder() throws IOException {
+        server.delay(Duration.ofMillis(300));
+        List<MultipartFile> files = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            MultipartFile file = diskFile("photo" + i + ".jpg", 10_000 + i);
+            files.add(file);
+            try (InputStream in = file.getInputStream()) {
+                hashes.add(BlobStore.hash(in).sha256());
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> urls = cloudinaryService.uploadImages(files, "products");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(server.requests()).isEqualTo(8);
+        assertThat(server.maxConcurrent()).isEqualTo(4); // capped by the executor
+        assertThat(elapsedMillis).isLessThan(8 * 300);
+        for (int i = 0; i < urls.size(); i++) {
+            assertThat(urls.get(i)).endsWith("/products/" + hashes.get(i) + ".jpg");
+        }
+    }
+
+    @Test
+    void slowUploadTimesOutAndFailingCloudinaryOpensTheCircuit() throws IOException {
+        ReflectionTestUtils.setField(cloudinaryService, "uploadGuard", strictGuard);
+
+        // Slow: the caller gets a 503 after the guard's timeout, not Cloudinary's 60 s
+        server.delay(Duration.ofSeconds(5));
+        long start = System.nanoTime();
+        assertUnavailable(diskFile("slow.jpg", 1000));
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2000);
+        server.delay(Duration.ZERO);
+
+        // Failing: after the window fills with failures, calls stop reaching the server
+        server.failNext(Integer.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            assertThatThrownBy(() -> cloudinaryService.uploadImage(diskFile("bad" + n + ".jpg", 1000), "products"))
+                    .hasMessageContaining("Injected failure");
+        }
+        assertThat(strictGuard.state()).isEqualTo(DependencyGuard.State.OPEN);
+        int requests = server.requests();
+        assertUnavailable(diskFile("rejected.jpg", 1000));
+        assertThat(server.requests()).isEqualTo(requests);
+
+        // Half-open: after open-duration one probe goes through and closes the circuit
+        server.failNext(0);
+        sleep(Duration.ofMillis(600));
+        assertThat(cloudinaryService.uploadImage(diskFile("probe.jpg", 1000), "products")).contains("/products/");
+        assertThat(strictGuard.state()).isEqualTo(DependencyGuard.State.CLOSED);
+        assertThat(strictGuard.stats().timeouts()).isEqualTo(1);
+        assertThat(strictGuard.stats().rejectedOpen()).isEqualTo(1);
+    }
+
+    private void assertUnavailable(MultipartFile file) {
+        assertThatThrownBy(() -> cloudinaryService.uploadImage(file, "products"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Upload {
+        void run() throws IOException;
+    }
+
+    // Allocated by this thread and by the guard's call threads while the upload ran
+    private long allocatedBy(Upload upload) throws IOException {
+        long before = currentThreadAllocatedBytes();
+        long callThreadsBefore = callThreads.allocated();
+        upload.run();
+        return currentThreadAllocatedBytes() - before + callThreads.allocated() - callThreadsBefore;
+    }
+
+    // Platform threads (the allocation counter doesn't cover virtual ones) that add up what they allocate
+    private static final class MeasuredThreads implements ThreadFactory {
+
+        private final AtomicLong allocated = new AtomicLong();
+        private final AtomicInteger running = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            running.incrementAndGet();
+            return Thread.ofPlatform().daemon().unstarted(() -> {
+                long before = currentThreadAllocatedBytes();
+                try {
+                    task.run();
+                } finally {
+                    allocated.addAndGet(currentThreadAllocatedBytes() - before);
+                    running.decrementAndGet();
+                }
+            });
+        }
+
+        // The caller has its result slightly before the call thread ends: wait for it to be counted
+        long allocated() {
+            while (running.get() > 0) {
+                Thread.onSpinWait();
+            }
+            return allocated.get();
+        }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private MultipartFile diskFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Path path = dir.resolve(name);
+        Files.write(path, content);
+        return new DiskMultipartFile(name, path);
+    }
+
+    // Like Tomcat's multipart parts: the content lives in a temp file, not in memory
+    private record DiskMultipartFile(String name, Path path) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "files";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return name;
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static FakeCloudinaryServer startServer() {
+        try {
+            return new FakeCloudinaryServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
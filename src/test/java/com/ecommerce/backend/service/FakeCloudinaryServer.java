@@ -0,0 +1,217 @@
+package com.ecommerce.backend.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Cloudinary upload API (POST /v1_1/{cloud}/{type}/upload), on a random local port:
+ * point the client at it with the "upload_prefix" setting.
+ * Answers like Cloudinary with secure_url/public_id built from the folder and public_id fields,
+ * optionally after a delay; records request count, bytes and peak concurrency.
+ * Uploaded (or addAsset-ed) assets can be listed and deleted through the Admin API
+ * (GET/DELETE /v1_1/{cloud}/resources/image/upload, with prefix/max_results/next_cursor paging).
+ * Faults: delay(...) makes it slow, failNext(n) answers the next n uploads with a 500.
+ */
+class FakeCloudinaryServer implements AutoCloseable {
+
+    private static final Pattern FIELD = Pattern.compile(
+            "name=\"(folder|public_id)\"\r\n(?:[^\r\n]+\r\n)*\r\n([^\r\n]*)\r\n");
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger adminCalls = new AtomicInteger();
+    // public_id -> created_at
+    private final NavigableMap<String, Instant> assets = new ConcurrentSkipListMap<>();
+    private volatile Duration delay = Duration.ZERO;
+
+    FakeCloudinaryServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+        // Platform threads: the JDK server reads request bodies in synchronized methods, which would
+        // pin virtual threads and can starve the client's virtual threads on a 1-CPU machine
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().contains("/resources/")) {
+                admin(exchange);
+            } else {
+                upload(exchange);
+            }
+        });
+        server.start();
+    }
+
+    String uploadPrefix() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void delay(Duration delay) {
+        this.delay = delay;
+    }
+
+    void failNext(int count) {
+        failNext.set(count);
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    int maxConcurrent() {
+        return maxActive.get();
+    }
+
+    long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    void addAsset(String publicId, Instant createdAt) {
+        assets.put(publicId, createdAt);
+    }
+
+    Set<String> assets() {
+        return Set.copyOf(assets.keySet());
+    }
+
+    int adminCalls() {
+        return adminCalls.get();
+    }
+
+    // Also waits for requests still running from a previous test (e.g. a delayed one the client gave up on)
+    void reset() throws InterruptedException {
+        delay = Duration.ZERO;
+        for (int i = 0; i < 1000 && active.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+        requests.set(0);
+        maxActive.set(0);
+        bytesReceived.set(0);
+        failNext.set(0);
+        adminCalls.set(0);
+        assets.clear();
+    }
+
+    private void upload(HttpExchange exchange) throws IOException {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try (exchange) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            requests.incrementAndGet();
+            bytesReceived.addAndGet(body.length);
+            Thread.sleep(delay);
+
+            Map<String, String> fields = new HashMap<>();
+            Matcher matcher = FIELD.matcher(new String(body, StandardCharsets.ISO_8859_1));
+            while (matcher.find()) {
+                fields.put(matcher.group(1), matcher.group(2));
+            }
+            String publicId = fields.getOrDefault("folder", "") + "/" + fields.getOrDefault("public_id", "upload" + requests.get());
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                respond(exchange, 500, "{\"error\":{\"message\":\"Injected failure\"}}");
+                return;
+            }
+            assets.put(publicId, Instant.now());
+            String json = "{\"public_id\":\"" + publicId + "\",\"resource_type\":\"image\",\"bytes\":" + body.length
+                    + ",\"secure_url\":\"https://res.cloudinary.com/demo/image/upload/v1/" + publicId + ".jpg\"}";
+            respond(exchange, 200, json);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private void admin(HttpExchange exchange) throws IOException {
+        adminCalls.incrementAndGet();
+        try (exchange) {
+            if (exchange.getRequestMethod().equals("DELETE")) {
+                String body;
+                try (InputStream in = exchange.getRequestBody()) {
+                    body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                List<String> deleted = new ArrayList<>();
+                for (String publicId : params(body).getOrDefault("public_ids[]", List.of())) {
+                    if (assets.remove(publicId) != null) {
+                        deleted.add("\"" + publicId + "\":\"deleted\"");
+                    }
+                }
+                respond(exchange, 200, "{\"deleted\":{" + String.join(",", deleted) + "},\"partial\":false}");
+                return;
+            }
+
+            Map<String, List<String>> query = params(exchange.getRequestURI().getRawQuery());
+            String prefix = query.getOrDefault("prefix", List.of("")).getFirst();
+            int maxResults = Integer.parseInt(query.getOrDefault("max_results", List.of("10")).getFirst());
+            String cursor = query.getOrDefault("next_cursor", List.of("")).getFirst();
+            List<String> page = new ArrayList<>();
+            String last = null;
+            for (Map.Entry<String, Instant> asset : assets.tailMap(cursor, false).entrySet()) {
+                if (!asset.getKey().startsWith(prefix)) {
+                    continue;
+                }
+                if (page.size() == maxResults) {
+                    break;
+                }
+                page.add("{\"public_id\":\"" + asset.getKey() + "\",\"created_at\":\"" + asset.getValue() + "\"}");
+                last = asset.getKey();
+            }
+            boolean more = last != null && assets.tailMap(last, false).keySet().stream().anyMatch(id -> id.startsWith(prefix));
+            respond(exchange, 200, "{\"resources\":[" + String.join(",", page) + "]"
+                    + (more ? ",\"next_cursor\":\"" + last + "\"" : "") + "}");
+        }
+    }
+
+    private static Map<String, List<String>> params(String encoded) {
+        Map<String, List<String>> params = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return params;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
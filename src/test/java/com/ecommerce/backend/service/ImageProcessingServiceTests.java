@@ -0,0 +1,199 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.config.InstrumentedExecutor;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.service.ImageProcessingService.ImageJob;
+import com.ecommerce.backend.service.ImageProcessingService.JobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageProcessingServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    // One worker, one queue slot
+    private final InstrumentedExecutor executor = InstrumentedExecutor.platform("test-image", 1, 1);
+    private final ForkJoinPool renditionPool = new ForkJoinPool(2);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void closeExecutors() throws InterruptedException {
+        executor.close();
+        renditionPool.close();
+    }
+
+    @Test
+    void optimizedImageAndRenditionsReplaceTheOriginalAtomically() throws Exception {
+        ImageProcessingService service = service();
+
+        ImageJob job = service.saveAndDelegateOptimization(png("photo.png", 2000, 1000), 1000);
+
+        assertThat(job.url()).matches("/uploads/[0-9a-f]{64}\\.png");
+        String base = job.url().substring(0, job.url().length() - ".png".length());
+        assertThat(job.renditions()).containsExactly(
+                entry(160, base + "_w160.png"), entry(320, base + "_w320.png"),
+                entry(640, base + "_w640.png"), entry(1280, base + "_w1280.png"));
+
+        ImageJob done = awaitFinished(service, job.filename());
+        assertThat(done.status()).isEqualTo(JobStatus.DONE);
+        assertThat(widthOf(job.filename())).isEqualTo(1000);
+        for (int width : List.of(160, 320, 640, 1280)) {
+            String rendition = ImageRenditions.localName(job.filename(), width);
+            assertThat(widthOf(rendition)).isEqualTo(width);
+        }
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertThat(files).hasSize(5); // original + 4 renditions, no temp file left behind
+        }
+    }
+
+    @Test
+    void onlyGeneratedRenditionsAreListed() throws Exception {
+        Files.writeString(uploadDir.resolve("legacy.png"), "never optimized");
+        Files.writeString(uploadDir.resolve("partial.png"), "failed half-way");
+        Files.writeString(uploadDir.resolve("partial_w160.png"), "160");
+        new ImageRenditions(List.of(160, 320, 640, 1280), uploadDir.toString()); // startup scan
+
+        assertThat(ImageRenditions.forUrl("/uploads/legacy.png")).isEmpty();
+        assertThat(ImageRenditions.forUrl("/uploads/partial.png")).containsExactly(entry(160, "/uploads/partial_w160.png"));
+
+        ImageProcessingService service = service();
+        ImageJob job = service.saveAndDelegateOptimization(png("photo.png", 800, 400), 400);
+        awaitFinished(service, job.filename());
+        assertThat(ImageRenditions.forUrl(job.url())).isEqualTo(job.renditions()).hasSize(4);
+    }
+
+    @Test
+    void finishedJobAnnouncesTheProductsAndCategoriesShowingTheImage() throws Exception {
+        ImageProcessingService service = service();
+        when(productRepository.findIdsByImage(anyString())).thenReturn(List.of(7L, 8L));
+        when(categoryRepository.findIdsByImage(anyString())).thenReturn(List.of(3L));
+
+        ImageJob job = service.saveAndDelegateOptimization(png("shown.png", 800, 400), 400);
+        awaitFinished(service, job.filename());
+
+        verify(productRepository).touch(eq(List.of(7L, 8L)), any());
+        verify(categoryRepository).touch(eq(List.of(3L)), any());
+        assertThat(events).containsExactly(CatalogChangedEvent.productSaved(7L), CatalogChangedEvent.productSaved(8L),
+                CatalogChangedEvent.categorySaved(3L));
+    }
+
+    @Test
+    void jobsForTheSameFileAreDeduplicatedAndAFullQueueIsRejected() throws Exception {
+        ImageProcessingService service = service();
+        CountDownLatch release = new CountDownLatch(1);
+        ImageJob first = service.saveAndDelegateOptimization(png("a.png", 800, 400), 400);
+        awaitFinished(service, first.filename());
+
+        // Occupy the only worker so the next job stays queued
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (executor.stats().active() == 0) {
+            Thread.onSpinWait();
+        }
+        ImageJob queued = service.optimize(first.filename(), 200);
+        assertThat(queued.status()).isEqualTo(JobStatus.QUEUED);
+        assertThat(service.optimize(first.filename(), 200)).isSameAs(queued);
+
+        assertThatThrownBy(() -> service.saveAndDelegateOptimization(png("b.png", 800, 300), 400))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertThat(files).hasSize(6); // the rejected upload's raw file is kept for a retry (or the sweep)
+        }
+
+        release.countDown();
+        assertThat(awaitFinished(service, first.filename()).status()).isEqualTo(JobStatus.DONE);
+        // Retrying the rejected upload queues the optimization it never got
+        ImageJob retried = service.saveAndDelegateOptimization(png("b.png", 800, 300), 400);
+        assertThat(retried.status()).isEqualTo(JobStatus.QUEUED);
+        assertThat(awaitFinished(service, retried.filename()).status()).isEqualTo(JobStatus.DONE);
+        assertThat(widthOf(retried.filename())).isEqualTo(400);
+        assertThat(widthOf(first.filename())).isEqualTo(200);
+        // Renditions are re-rendered from the current (400px) file and never upscaled
+        assertThat(widthOf(ImageRenditions.localName(first.filename(), 320))).isEqualTo(320);
+        assertThat(widthOf(ImageRenditions.localName(first.filename(), 640))).isEqualTo(400);
+    }
+
+    @Test
+    void reuploadingTheSameBytesReusesTheStoredFile() throws Exception {
+        ImageProcessingService service = service();
+        ImageJob first = service.saveAndDelegateOptimization(png("photo.png", 800, 400), 400);
+        awaitFinished(service, first.filename());
+
+        ImageJob again = service.saveAndDelegateOptimization(png("same photo, new name.PNG", 800, 400), 1000);
+
+        assertThat(again.filename()).isEqualTo(first.filename());
+        assertThat(again.status()).isEqualTo(JobStatus.DONE); // not queued again
+        assertThat(widthOf(first.filename())).isEqualTo(400);
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertThat(files).hasSize(5);
+        }
+    }
+
+    private ImageProcessingService service() {
+        ImageProcessingService service = new ImageProcessingService(executor, renditionPool, mock(BlobStore.class),
+                productRepository, categoryRepository, events::add);
+        ReflectionTestUtils.setField(service, "configuredUploadDir", uploadDir.toString());
+        return service;
+    }
+
+    private int widthOf(String filename) throws IOException {
+        return ImageIO.read(uploadDir.resolve(filename).toFile()).getWidth();
+    }
+
+    private static ImageJob awaitFinished(ImageProcessingService service, String filename) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ImageJob job = service.status(filename);
+            if (job.status() == JobStatus.DONE || job.status() == JobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Image job did not finish: " + service.status(filename));
+    }
+
+    private static MockMultipartFile png(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("file", name, "image/png", bytes.toByteArray());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.backend.service;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Decode-once + parallel renditions (what ImageProcessingService does) against decoding the
+ * upload again for every width, sequentially. Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class ImageRenditionBenchmarkTests {
+
+    private static final int[] WIDTHS = {160, 320, 640, 1280};
+    private static final int ROUNDS = 10;
+
+    @Test
+    void decodeOnceVersusDecodePerSize() throws Exception {
+        byte[] upload = sampleJpeg(3000, 2000);
+
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            // Warm up the codecs and the JIT
+            for (int i = 0; i < 3; i++) {
+                decodePerSize(upload);
+                decodeOnceParallel(upload, pool);
+            }
+
+            long perSize = time(() -> decodePerSize(upload));
+            long once = time(() -> decodeOnceParallel(upload, pool));
+
+            System.out.printf("3000x2000 JPEG -> %d renditions, %d uploads:%n", WIDTHS.length, ROUNDS);
+            System.out.printf("  decode per size (sequential): %6.1f ms/upload, %5.1f uploads/s%n",
+                    perSize / 1e6 / ROUNDS, ROUNDS / (perSize / 1e9));
+            System.out.printf("  decode once (fork-join):      %6.1f ms/upload, %5.1f uploads/s%n",
+                    once / 1e6 / ROUNDS, ROUNDS / (once / 1e9));
+
+            assertThat(once).isLessThan(perSize);
+        }
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static long time(Work work) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            work.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void decodePerSize(byte[] upload) throws IOException {
+        for (int width : WIDTHS) {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(upload));
+            encode(source, width);
+        }
+    }
+
+    private static void decodeOnceParallel(byte[] upload, ForkJoinPool pool) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(upload));
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        for (int width : WIDTHS) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                encode(source, width);
+                return null;
+            }));
+        }
+        tasks.forEach(pool::execute);
+        tasks.forEach(ForkJoinTask::join);
+    }
+
+    private static void encode(BufferedImage source, int width) throws IOException {
+        Thumbnails.of(source).width(width).outputQuality(0.8).outputFormat("jpg")
+                .toOutputStream(OutputStream.nullOutputStream());
+    }
+
+    private static byte[] sampleJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", bytes);
+        return bytes.toByteArray();
+    }
+}
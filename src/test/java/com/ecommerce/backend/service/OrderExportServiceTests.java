@@ -0,0 +1,63 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderExportServiceTests {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void formulaLikeCellsAreNeutralized() {
+        assertThat(OrderExportService.csv("=HYPERLINK(\"http://x\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\"");
+        assertThat(OrderExportService.csv("+33 6 12 34 56 78")).isEqualTo("'+33 6 12 34 56 78");
+        assertThat(OrderExportService.csv("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(OrderExportService.csv("-1+2")).isEqualTo("'-1+2");
+        assertThat(OrderExportService.csv(-5.0)).isEqualTo("-5.0");
+        assertThat(OrderExportService.csv("Jane Doe")).isEqualTo("Jane Doe");
+    }
+
+    @Test
+    void exportHonoursEachCombinationOfBounds() throws Exception {
+        LocalDateTime base = LocalDateTime.of(1990, 1, 1, 0, 0);
+        saveOrder("Export early", base);
+        saveOrder("Export late", base.plusDays(10));
+
+        assertThat(export(base, base.plusDays(1))).contains("Export early").doesNotContain("Export late");
+        assertThat(export(base.plusDays(1), null)).contains("Export late").doesNotContain("Export early");
+        assertThat(export(null, base.plusDays(1))).contains("Export early").doesNotContain("Export late");
+        assertThat(export(null, null)).contains("Export early", "Export late");
+    }
+
+    private String export(LocalDateTime from, LocalDateTime to) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(OrderExportService.Format.CSV, from, to, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void saveOrder(String customer, LocalDateTime date) {
+        Order order = new Order();
+        order.setCustomerName(customer);
+        order.setDate(date);
+        order.setStatus("Pending");
+        order.setProducts(new ArrayList<>());
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,207 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.OutboxMessageRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "app.orders.group-commit.enabled=true",
+        "app.orders.group-commit.max-wait=PT0.02S"
+})
+@ActiveProfiles("h2")
+class OrderIntakeServiceTests {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentOrdersAreCommittedInGroups() throws Exception {
+        int orders = 200;
+        long before = orderRepository.count();
+        try (ExecutorService clients = Executors.newFixedThreadPool(32)) {
+            List<Future<Order>> results = IntStream.range(0, orders)
+                    .mapToObj(i -> clients.submit(() -> orderIntakeService.place(newOrder("Customer " + i))))
+                    .toList();
+            Set<Long> ids = new HashSet<>();
+            for (Future<Order> result : results) {
+                Order saved = result.get(30, TimeUnit.SECONDS);
+                assertThat(saved.getId()).isNotNull();
+                assertThat(saved.getProducts()).allSatisfy(item -> assertThat(item.getId()).isNotNull());
+                ids.add(saved.getId());
+            }
+            assertThat(ids).hasSize(orders);
+        }
+
+        assertThat(orderRepository.count()).isEqualTo(before + orders);
+        OrderIntakeService.IntakeStats stats = orderIntakeService.stats();
+        assertThat(stats.orders()).isGreaterThanOrEqualTo(orders);
+        assertThat(stats.batches()).isLessThan(stats.orders());
+        assertThat(stats.queueDepth()).isZero();
+    }
+
+    @Test
+    void outOfStockOrdersLeaveTheGroupWithoutFailingIt() throws Exception {
+        Product hot = new Product();
+        hot.setName("Hot");
+        hot.setPrice(10.0);
+        hot.setAvailable(true);
+        hot.setStock(30);
+        productRepository.save(hot);
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        try (ExecutorService clients = Executors.newFixedThreadPool(32)) {
+            List<Future<?>> results = IntStream.range(0, 100)
+                    .mapToObj(i -> clients.submit(() -> {
+                        Order order = newOrder("Customer " + i);
+                        order.getProducts().getFirst().setProductId(hot.getId());
+                        order.getProducts().getFirst().setQuantity(1);
+                        try {
+                            orderIntakeService.place(order);
+                            placed.incrementAndGet();
+                        } catch (ResponseStatusException e) {
+                            assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                            outOfStock.incrementAndGet();
+                        }
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(placed.get()).isEqualTo(30);
+        assertThat(outOfStock.get()).isEqualTo(70);
+        assertThat(productRepository.findById(hot.getId()).orElseThrow().getStock()).isZero();
+    }
+
+    @Test
+    void fullQueueIsRejectedWith429() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        OrderRepository slowRepository = mock(OrderRepository.class);
+        when(slowRepository.saveAll(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        OrderIntakeService intake = new OrderIntakeService(slowRepository,
+                mock(OutboxMessageRepository.class), mock(StockService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                true, 1, 1, Duration.ZERO, Duration.ofSeconds(10));
+        intake.start();
+
+        try (ExecutorService clients = Executors.newFixedThreadPool(2)) {
+            Future<Order> inFlight = clients.submit(() -> intake.place(newOrder("first")));
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Order> queued = clients.submit(() -> intake.place(newOrder("second")));
+            while (intake.stats().queueDepth() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> intake.place(newOrder("third")))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+            release.countDown();
+            assertThat(Set.of(inFlight.get(5, TimeUnit.SECONDS), queued.get(5, TimeUnit.SECONDS))
+                    .stream().map(Order::getCustomerName).collect(Collectors.toSet()))
+                    .containsExactlyInAnyOrder("first", "second");
+        } finally {
+            intake.stop();
+        }
+        assertThat(intake.stats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void timedOutQueuedOrderIsWithdrawnAndNeverSaved() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        List<String> saved = new CopyOnWriteArrayList<>();
+        OrderRepository slowRepository = mock(OrderRepository.class);
+        when(slowRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> saved.add(order.getCustomerName()));
+            writing.countDown();
+            release.await();
+            return orders;
+        });
+        OrderIntakeService intake = new OrderIntakeService(slowRepository,
+                mock(OutboxMessageRepository.class), mock(StockService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                true, 10, 1, Duration.ZERO, Duration.ofMillis(500));
+        intake.start();
+
+        try (ExecutorService clients = Executors.newFixedThreadPool(1)) {
+            // Outlives its first timeout inside the writer's transaction, then gets its order
+            Future<Order> inFlight = clients.submit(() -> intake.place(newOrder("first")));
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> intake.place(newOrder("second")))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+            release.countDown();
+            assertThat(inFlight.get(5, TimeUnit.SECONDS).getCustomerName()).isEqualTo("first");
+            while (intake.stats().queueDepth() > 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            intake.stop();
+        }
+        // The caller was told 503, so the writer must not save it behind their back
+        assertThat(saved).containsExactly("first");
+    }
+
+    private static Order newOrder(String customer) {
+        Order order = new Order();
+        order.setCustomerName(customer);
+        order.setDate(LocalDateTime.now());
+        order.setStatus("Pending");
+        OrderItem item = new OrderItem();
+        item.setName("Item");
+        item.setPrice(10.0);
+        item.setQuantity(2);
+        order.setProducts(List.of(item));
+        return order;
+    }
+}
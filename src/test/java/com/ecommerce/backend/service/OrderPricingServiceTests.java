@@ -0,0 +1,100 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderPricingServiceTests {
+
+    @Autowired
+    private OrderPricingService orderPricingService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void pricesEveryLineFromTheCatalogInOneQuery() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(product("Product " + i, 10.1 + i, true));
+        }
+        productRepository.saveAll(products);
+
+        Order order = new Order();
+        List<OrderItem> lines = new ArrayList<>();
+        for (Product product : products) {
+            lines.add(line(product.getId(), 3, "Forged name", 0.01));
+        }
+        order.setProducts(lines);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderPricingService.price(order);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(order.getProducts().getFirst().getName()).isEqualTo("Product 0");
+        assertThat(order.getProducts().getFirst().getPrice()).isEqualTo(10.1);
+        // 3 x (10.1 + 11.1 + ... + 19.1)
+        assertThat(order.getTotalAmount()).isEqualTo(438.0);
+    }
+
+    @Test
+    void rejectsUnavailableAndUnknownProducts() {
+        Product available = product("Available", 5.0, true);
+        Product soldOut = product("Sold out", 5.0, false);
+        productRepository.saveAll(List.of(available, soldOut));
+
+        Order unavailable = new Order();
+        unavailable.setProducts(List.of(line(available.getId(), 1, null, null), line(soldOut.getId(), 1, null, null)));
+        assertThatThrownBy(() -> orderPricingService.price(unavailable))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                    assertThat(e.getReason()).contains("Sold out");
+                });
+
+        Order unknown = new Order();
+        unknown.setProducts(List.of(line(-1L, 1, null, null)));
+        assertThatThrownBy(() -> orderPricingService.price(unknown))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static Product product(String name, double price, boolean available) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Test");
+        product.setPrice(price);
+        product.setAvailable(available);
+        return product;
+    }
+
+    private static OrderItem line(Long productId, int quantity, String name, Double price) {
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        item.setName(name);
+        item.setPrice(price);
+        return item;
+    }
+}
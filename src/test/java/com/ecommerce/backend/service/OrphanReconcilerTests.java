@@ -0,0 +1,179 @@
+package com.ecommerce.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.ecommerce.backend.config.ImageRenditions;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.repository.StoredBlobRepository;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrphanReconcilerTests {
+
+    private static final FakeCloudinaryServer server = startServer();
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(2));
+
+    @TempDir
+    Path uploadDir;
+
+    private final Cloudinary cloudinary = new Cloudinary(ObjectUtils.asMap(
+            "cloud_name", "demo", "api_key", "key", "api_secret", "secret",
+            "upload_prefix", server.uploadPrefix()));
+    private final DependencyGuard guard = new DependencyGuard("cloudinary-test", new DependencyGuard.Settings(
+            10, Duration.ofMillis(100), 20, 10, 0.5, Duration.ofSeconds(30), 1,
+            Duration.ofSeconds(5), Duration.ofSeconds(60)));
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final StoredBlobRepository storedBlobRepository = mock(StoredBlobRepository.class);
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        server.reset();
+        when(productRepository.findAllImageUrls()).thenReturn(List.of(
+                "https://res.cloudinary.com/demo/image/upload/v1/products/kept.jpg", "/uploads/kept.jpg"));
+        when(categoryRepository.findAllImageUrls()).thenReturn(List.of(
+                "https://res.cloudinary.com/demo/image/upload/v3/categories/shoes.png"));
+        when(storedBlobRepository.findTrackedRemoteIds(any())).thenAnswer(call ->
+                only(call.getArgument(0), "products/tracked"));
+        when(storedBlobRepository.findTrackedUrls(any())).thenAnswer(call ->
+                only(call.getArgument(0), "/uploads/tracked.jpg"));
+    }
+
+    @AfterEach
+    void closeGuard() {
+        guard.close();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void cloudinaryOrphansAreDeletedInBatchesWithinTheCallBudget() {
+        List<String> orphans = new ArrayList<>();
+        for (int i = 0; i < 650; i++) {
+            orphans.add("products/orphan%03d".formatted(i));
+        }
+        orphans.forEach(id -> server.addAsset(id, OLD));
+        server.addAsset("products/kept", OLD);
+        server.addAsset("products/tracked", OLD);
+        server.addAsset("products/fresh", Instant.now());
+        server.addAsset("categories/shoes", OLD);
+        server.addAsset("banners/old", OLD); // not a folder of ours
+
+        OrphanReconciler reconciler = reconciler(4, 1000);
+        int runs = 0;
+        int deleted = 0;
+        while (server.assets().stream().anyMatch(id -> id.contains("orphan")) && runs < 10) {
+            int callsBefore = server.adminCalls();
+            deleted += reconciler.reconcile();
+            assertThat(server.adminCalls() - callsBefore).isLessThanOrEqualTo(4);
+            runs++;
+        }
+
+        assertThat(deleted).isEqualTo(650);
+        assertThat(server.assets()).containsExactlyInAnyOrder(
+                "products/kept", "products/tracked", "products/fresh", "categories/shoes", "banners/old");
+        // 2 pages + 7 deletes of at most 100 ids, spread over several runs
+        assertThat(runs).isGreaterThan(2);
+        assertThat(reconciler.stats().cloudinaryDeleted()).isEqualTo(650);
+    }
+
+    @Test
+    void localOrphansAreFoundSliceBySlice() throws IOException {
+        for (String name : List.of("kept.jpg", "kept_w320.jpg", "orphan.jpg", "orphan_w320.jpg", "orphan_w640.jpg",
+                "tracked.jpg", "tracked_w160.jpg", "legacy_photo.png", ".upload-123.tmp")) {
+            Files.writeString(uploadDir.resolve(name), name);
+            Files.setLastModifiedTime(uploadDir.resolve(name), FileTime.from(OLD));
+        }
+        Files.writeString(uploadDir.resolve("fresh.jpg"), "fresh"); // still in its grace period
+
+        OrphanReconciler reconciler = reconciler(0, 3);
+        int deleted = 0;
+        for (int run = 0; run < 4; run++) {
+            deleted += reconciler.reconcile();
+        }
+
+        assertThat(deleted).isEqualTo(5);
+        assertThat(names(uploadDir)).containsExactlyInAnyOrder(
+                "kept.jpg", "kept_w320.jpg", "tracked.jpg", "tracked_w160.jpg", "fresh.jpg");
+        assertThat(reconciler.stats().localScanned()).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void nothingIsDeletedUnlessEnabled() throws IOException {
+        server.addAsset("products/orphan", OLD);
+        Files.writeString(uploadDir.resolve("orphan.jpg"), "orphan");
+        Files.setLastModifiedTime(uploadDir.resolve("orphan.jpg"), FileTime.from(OLD));
+
+        OrphanReconciler reconciler = new OrphanReconciler(productRepository, categoryRepository,
+                storedBlobRepository, cloudinary, guard, false, uploadDir.toString(), Duration.ofDays(1),
+                List.of("products"), 20, 1000);
+
+        assertThat(reconciler.reconcile()).isZero();
+        assertThat(server.assets()).contains("products/orphan");
+        assertThat(server.adminCalls()).isZero();
+        assertThat(names(uploadDir)).contains("orphan.jpg");
+    }
+
+    @Test
+    void urlsAreMappedToWhatTheyPointAt() {
+        assertThat(OrphanReconciler.cloudinaryPublicId("https://res.cloudinary.com/demo/image/upload/v1712/products/abc.jpg"))
+                .isEqualTo("products/abc");
+        assertThat(OrphanReconciler.cloudinaryPublicId("https://res.cloudinary.com/demo/image/upload/folder.v2/abc"))
+                .isEqualTo("folder.v2/abc");
+        assertThat(OrphanReconciler.cloudinaryPublicId("/uploads/abc.jpg")).isNull();
+        assertThat(ImageRenditions.originalName("abc_w320.jpg")).isEqualTo("abc.jpg");
+        assertThat(ImageRenditions.originalName("abc_w321.jpg")).isEqualTo("abc_w321.jpg");
+    }
+
+    private OrphanReconciler reconciler(int apiCallsPerRun, int localFilesPerRun) {
+        return new OrphanReconciler(productRepository, categoryRepository, storedBlobRepository, cloudinary, guard,
+                true, uploadDir.toString(), Duration.ofDays(1), List.of("products", "categories"),
+                apiCallsPerRun, localFilesPerRun);
+    }
+
+    private static List<String> only(Collection<String> values, String tracked) {
+        return values.stream().filter(tracked::equals).toList();
+    }
+
+    private static Set<String> names(Path dir) throws IOException {
+        Set<String> names = new HashSet<>();
+        try (var files = Files.list(dir)) {
+            files.forEach(file -> names.add(file.getFileName().toString()));
+        }
+        return names;
+    }
+
+    private static FakeCloudinaryServer startServer() {
+        try {
+            return new FakeCloudinaryServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.entity.OutboxMessage;
+import com.ecommerce.backend.config.ResilienceConfig;
+import com.ecommerce.backend.repository.OutboxMessageRepository;
+import com.ecommerce.backend.resilience.DependencyGuard;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false",
+        "app.outbox.initial-backoff=PT30S",
+        // The shared SMTP guard must not open across tests; the breaker has its own test below
+        "app.resilience.smtp.window-size=1000",
+        "app.resilience.smtp.minimum-calls=1000"
+})
+@ActiveProfiles("h2")
+class OutboxDispatcherTests {
+
+    private static final FakeSmtpServer smtp = startSmtp();
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    @Qualifier(ResilienceConfig.SMTP_GUARD)
+    private DependencyGuard smtpGuard;
+
+    @DynamicPropertySource
+    static void smtpPort(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", smtp::port);
+    }
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @BeforeEach
+    void clean() {
+        outboxMessageRepository.deleteAll();
+        smtp.reset();
+    }
+
+    @Test
+    void orderNotificationIsWrittenWithTheOrderAndSentInOneConnection() {
+        List<Order> orders = List.of(placeOrder("Alice"), placeOrder("Bob"), placeOrder("Carol"));
+        assertThat(outboxMessageRepository.countByStatus(OutboxMessage.Status.PENDING)).isEqualTo(3);
+        assertThat(smtp.messages()).isEmpty();
+
+        assertThat(outboxDispatcher.dispatch(Instant.now())).isEqualTo(3);
+
+        assertThat(smtp.connections()).isEqualTo(1);
+        assertThat(smtp.messages()).hasSize(3);
+        assertThat(smtp.subjects()).contains("📦 New Order Received! #" + orders.getFirst().getId());
+        assertThat(outboxMessageRepository.countByStatus(OutboxMessage.Status.SENT)).isEqualTo(3);
+        assertThat(outboxDispatcher.dispatch(Instant.now())).isZero();
+    }
+
+    @Test
+    void failedMessagesAreRetriedWithBackoff() {
+        placeOrder("Alice");
+        placeOrder("Bob");
+        smtp.rejectNext(1);
+        Instant now = Instant.now();
+
+        outboxDispatcher.dispatch(now);
+
+        assertThat(smtp.messages()).hasSize(1);
+        OutboxMessage retrying = outboxMessageRepository.findAll().stream()
+                .filter(m -> m.getStatus() == OutboxMessage.Status.PENDING)
+                .findFirst().orElseThrow();
+        assertThat(retrying.getAttempts()).isEqualTo(1);
+        assertThat(retrying.getLastError()).contains("451");
+        // 30 s +/- 20% jitter
+        assertThat(retrying.getNextAttemptAt()).isBetween(now.plusSeconds(24), now.plusSeconds(36));
+
+        assertThat(outboxDispatcher.dispatch(now.plusSeconds(1))).isZero();
+        assertThat(outboxDispatcher.dispatch(now.plusSeconds(40))).isEqualTo(1);
+        assertThat(smtp.messages()).hasSize(2);
+        assertThat(outboxMessageRepository.countByStatus(OutboxMessage.Status.SENT)).isEqualTo(2);
+    }
+
+    @Test
+    void messagesAreGivenUpAfterMaxAttempts() {
+        placeOrder("Alice");
+        smtp.rejectNext(Integer.MAX_VALUE);
+        Instant now = Instant.now();
+
+        for (int i = 0; i < 10; i++) {
+            outboxDispatcher.dispatch(now.plus(Duration.ofDays(i)));
+        }
+
+        assertThat(outboxMessageRepository.countByStatus(OutboxMessage.Status.FAILED)).isEqualTo(1);
+        assertThat(outboxDispatcher.dispatch(now.plus(Duration.ofDays(30)))).isZero();
+    }
+
+    @Test
+    void burstIsCoalescedIntoOneDigest() {
+        for (int i = 0; i < 4; i++) {
+            placeOrder("Customer " + i);
+        }
+        OutboxDispatcher digesting = new OutboxDispatcher(outboxMessageRepository, emailService, mailSender, Runnable::run,
+                smtpGuard, 50, 10, Duration.ofSeconds(30), Duration.ofHours(1), 3, Duration.ofDays(30));
+
+        assertThat(digesting.dispatch(Instant.now())).isEqualTo(4);
+
+        assertThat(smtp.messages()).hasSize(1);
+        assertThat(smtp.subjects()).containsExactly("📦 4 New Orders Received!");
+        assertThat(outboxMessageRepository.countByStatus(OutboxMessage.Status.SENT)).isEqualTo(4);
+    }
+
+    @Test
+    void openCircuitKeepsMessagesPendingWithoutUsingAttempts() {
+        placeOrder("Alice");
+        smtp.rejectNext(Integer.MAX_VALUE);
+        try (DependencyGuard guard = new DependencyGuard("smtp-test", new DependencyGuard.Settings(
+                4, Duration.ZERO, 2, 2, 0.5, Duration.ofHours(1), 1, Duration.ofSeconds(1), Duration.ofSeconds(5)),
+                Thread.ofPlatform().daemon().factory())) {
+            OutboxDispatcher guarded = new OutboxDispatcher(outboxMessageRepository, emailService, mailSender, Runnable::run,
+                    guard, 50, 10, Duration.ofSeconds(30), Duration.ofHours(1), 0, Duration.ofDays(30));
+            Instant now = Instant.now();
+
+            guarded.dispatch(now);
+            guarded.dispatch(now.plus(Duration.ofHours(1)));
+            assertThat(guard.state()).isEqualTo(DependencyGuard.State.OPEN);
+            int connections = smtp.connections();
+
+            assertThat(guarded.dispatch(now.plus(Duration.ofDays(1)))).isZero();
+            assertThat(smtp.connections()).isEqualTo(connections);
+            OutboxMessage pending = outboxMessageRepository.findAll().getFirst();
+            assertThat(pending.getStatus()).isEqualTo(OutboxMessage.Status.PENDING);
+            assertThat(pending.getAttempts()).isEqualTo(2);
+        }
+    }
+
+    private Order placeOrder(String customer) {
+        Order order = new Order();
+        order.setCustomerName(customer);
+        order.setDate(LocalDateTime.now());
+        order.setStatus("Pending");
+        OrderItem item = new OrderItem();
+        item.setName("Item");
+        item.setPrice(25.0);
+        item.setQuantity(2);
+        order.setProducts(List.of(item));
+        order.setTotalAmount(50.0);
+        return orderIntakeService.place(order);
+    }
+
+    private static FakeSmtpServer startSmtp() {
+        try {
+            return new FakeSmtpServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.controller.OrderController;
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.entity.OrderItem;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class StockServiceTests {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Test
+    void hotSkuIsNeverOversold() throws Exception {
+        Product hot = productRepository.save(product("Hot", 100));
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+
+        List<Future<?>> clients = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(64)) {
+            for (int i = 0; i < 256; i++) {
+                clients.add(pool.submit(() -> {
+                    try {
+                        orderIntakeService.place(order(line(hot, 1)));
+                        placed.incrementAndGet();
+                    } catch (ResponseStatusException e) {
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                        outOfStock.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get(60, TimeUnit.SECONDS); // rethrows anything but a 409 (lock timeout, deadlock...)
+            }
+        }
+
+        assertThat(placed.get()).isEqualTo(100);
+        assertThat(outOfStock.get()).isEqualTo(156);
+        assertThat(stockOf(hot)).isZero();
+    }
+
+    @Test
+    void opposingLineOrderDoesNotDeadlock() throws Exception {
+        Product a = productRepository.save(product("A", 1000));
+        Product b = productRepository.save(product("B", 1000));
+
+        List<Future<Order>> clients = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < 200; i++) {
+                Order order = i % 2 == 0 ? order(line(a, 1), line(b, 2)) : order(line(b, 2), line(a, 1));
+                clients.add(pool.submit(() -> orderIntakeService.place(order)));
+            }
+            for (Future<Order> client : clients) {
+                assertThat(client.get(60, TimeUnit.SECONDS).getId()).isNotNull();
+            }
+        }
+
+        assertThat(stockOf(a)).isEqualTo(800);
+        assertThat(stockOf(b)).isEqualTo(600);
+    }
+
+    @Test
+    void partialReservationIsGivenBackAndCancelReleases() {
+        Product plenty = productRepository.save(product("Plenty", 10));
+        Product scarce = productRepository.save(product("Scarce", 1));
+        Product untracked = productRepository.save(product("Untracked", null));
+
+        Order first = orderIntakeService.place(order(line(plenty, 3), line(scarce, 1), line(untracked, 5)));
+        assertThatThrownBy(() -> orderIntakeService.place(order(line(plenty, 3), line(scarce, 1))))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(stockOf(plenty)).isEqualTo(7);
+        assertThat(stockOf(scarce)).isZero();
+        assertThat(stockOf(untracked)).isNull();
+
+        orderService.updateStatus(first.getId(), "Cancelled");
+        assertThat(stockOf(plenty)).isEqualTo(10);
+        assertThat(stockOf(scarce)).isEqualTo(1);
+        assertThat(orderRepository.findById(first.getId()).orElseThrow().getStatus()).isEqualTo("Cancelled");
+    }
+
+    @Test
+    void deletingAnOrderGivesBackItsStockOnce() {
+        Product product = productRepository.save(product("Deleted", 10));
+        Order held = orderIntakeService.place(order(line(product, 3)));
+        Order cancelled = orderIntakeService.place(order(line(product, 2)));
+        orderService.updateStatus(cancelled.getId(), "Cancelled");
+        assertThat(stockOf(product)).isEqualTo(7);
+
+        orderController.deleteOrder(held.getId());
+        orderController.deleteOrder(cancelled.getId()); // already released by the cancel
+
+        assertThat(stockOf(product)).isEqualTo(10);
+        assertThat(orderRepository.findById(held.getId())).isEmpty();
+    }
+
+    @Test
+    void stockChangesReachTheCatalogCachesAndDeltaSync() {
+        Product product = productRepository.save(product("Synced", 10));
+        Instant since = productRepository.findById(product.getId()).orElseThrow().getUpdatedAt();
+
+        long before = catalogVersionService.current().version();
+        Order order = orderIntakeService.place(order(line(product, 4)));
+        long afterReserve = catalogVersionService.current().version();
+        assertThat(afterReserve).isGreaterThan(before);
+        assertThat(productRepository.findByUpdatedAtAfterOrderByUpdatedAtAsc(since))
+                .extracting(Product::getId, Product::getStock)
+                .contains(tuple(product.getId(), 6));
+
+        orderService.updateStatus(order.getId(), "Cancelled");
+        assertThat(catalogVersionService.current().version()).isGreaterThan(afterReserve);
+    }
+
+    private Integer stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private static Product product(String name, Integer stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Test");
+        product.setPrice(10.0);
+        product.setAvailable(true);
+        product.setStock(stock);
+        return product;
+    }
+
+    private static OrderItem line(Product product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProductId(product.getId());
+        item.setName(product.getName());
+        item.setPrice(product.getPrice());
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static Order order(OrderItem... items) {
+        Order order = new Order();
+        order.setCustomerName("Customer");
+        order.setDate(LocalDateTime.now());
+        order.setStatus("Pending");
+        order.setProducts(List.of(items));
+        return order;
+    }
+}
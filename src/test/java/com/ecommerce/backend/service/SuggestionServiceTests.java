@@ -0,0 +1,54 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.event.CatalogChangedEvent;
+import com.ecommerce.backend.repository.CategoryRepository;
+import com.ecommerce.backend.repository.OrderRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.search.SuggestionTrie.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuggestionServiceTests {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final SuggestionService service =
+            new SuggestionService(productRepository, categoryRepository, mock(OrderRepository.class));
+
+    @Test
+    void changesDuringARebuildAreNotLostWhenTheTrieIsReplaced() {
+        Product lamp = product(1L, "Lamp");
+        Product ladder = product(2L, "Ladder");
+        Product laptop = product(3L, "Laptop");
+        // The rebuild reads lamp and ladder; meanwhile ladder is deleted and laptop is created
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            service.onCatalogChanged(CatalogChangedEvent.productDeleted(2L));
+            service.onCatalogChanged(CatalogChangedEvent.productSaved(3L));
+            return List.of(lamp, ladder);
+        });
+        when(productRepository.findById(3L)).thenReturn(Optional.of(laptop));
+
+        service.rebuild();
+
+        assertThat(service.suggest("la", 10)).extracting(Suggestion::text)
+                .containsExactlyInAnyOrder("Lamp", "Laptop");
+
+        // Outside a rebuild, changes still go straight to the trie
+        service.onCatalogChanged(CatalogChangedEvent.productDeleted(1L));
+        assertThat(service.suggest("la", 10)).extracting(Suggestion::text).containsExactly("Laptop");
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+}